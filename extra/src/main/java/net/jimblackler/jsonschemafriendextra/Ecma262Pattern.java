@@ -1,44 +1,80 @@
 package net.jimblackler.jsonschemafriendextra;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import net.jimblackler.jsonschemafriend.InvalidRegexException;
 import net.jimblackler.jsonschemafriend.RegExPattern;
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
 import org.graalvm.polyglot.Value;
 
 public class Ecma262Pattern implements RegExPattern {
-  private static final Value REGEX_BUILDER =
-      Context.create("js")
-          .eval(
-              "js",
-              "pattern => {"
-                  + "  let regex;"
-                  + "  try {"
-                  + "    regex = new RegExp(pattern, 'u');"
-                  + "  } catch (e) {"
-                  + "    regex = new RegExp(pattern);"
-                  + "  }"
-                  + "  return text => text.match(regex)"
-                  + "};");
+  // The engine is shared so that the builder is parsed once. A context can only be entered by one
+  // thread at a time, so there is a context for each processor, and patterns are compiled in each
+  // context that matches them. The contexts are shared by all patterns, so their number does not
+  // grow with the number of patterns.
+  private static final Engine ENGINE = Engine.create();
+  private static final Source REGEX_BUILDER =
+      Source.create(
+          "js",
+          "pattern => {"
+              + "  let regex;"
+              + "  try {"
+              + "    regex = new RegExp(pattern, 'u');"
+              + "  } catch (e) {"
+              + "    regex = new RegExp(pattern);"
+              + "  }"
+              + "  return text => text.match(regex)"
+              + "};");
+  private static final PatternContext[] CONTEXTS =
+      new PatternContext[Runtime.getRuntime().availableProcessors()];
+  // The number of compiled patterns kept by each context.
+  private static final int MAX_PATTERNS = 256;
+
+  static {
+    for (int idx = 0; idx != CONTEXTS.length; idx++) {
+      CONTEXTS[idx] = new PatternContext();
+    }
+  }
+
   private final String pattern;
-  private final Value function;
 
   public Ecma262Pattern(String pattern) throws InvalidRegexException {
     this.pattern = pattern;
-
+    PatternContext context = acquire();
     try {
-      synchronized (REGEX_BUILDER) {
-        function = REGEX_BUILDER.execute(pattern);
-      }
+      context.getFunction(pattern);
     } catch (PolyglotException ex) {
       throw new InvalidRegexException(ex);
+    } finally {
+      context.lock.unlock();
+    }
+  }
+
+  /** Locks and returns a context, preferring one that is not in use. */
+  private static PatternContext acquire() {
+    int start = (int) (Thread.currentThread().getId() % CONTEXTS.length);
+    for (int offset = 0; offset != CONTEXTS.length; offset++) {
+      PatternContext context = CONTEXTS[(start + offset) % CONTEXTS.length];
+      if (context.lock.tryLock()) {
+        return context;
+      }
     }
+    PatternContext context = CONTEXTS[start];
+    context.lock.lock();
+    return context;
   }
 
   @Override
   public boolean matches(String text) {
-    synchronized (REGEX_BUILDER) {
-      return !function.execute(text).isNull();
+    PatternContext context = acquire();
+    try {
+      return !context.getFunction(pattern).execute(text).isNull();
+    } finally {
+      context.lock.unlock();
     }
   }
 
@@ -46,4 +82,30 @@ public class Ecma262Pattern implements RegExPattern {
   public String toString() {
     return pattern;
   }
+
+  private static class PatternContext {
+    final ReentrantLock lock = new ReentrantLock();
+    // Created when first needed. Guarded by the lock, as are the functions.
+    private Value builder;
+    private final Map<String, Value> functions =
+        new LinkedHashMap<String, Value>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Value> eldest) {
+            return size() > MAX_PATTERNS;
+          }
+        };
+
+    /** Returns the function that matches text against the pattern. Called with the lock held. */
+    Value getFunction(String pattern) {
+      Value function = functions.get(pattern);
+      if (function == null) {
+        if (builder == null) {
+          builder = Context.newBuilder("js").engine(ENGINE).build().eval(REGEX_BUILDER);
+        }
+        function = builder.execute(pattern);
+        functions.put(pattern, function);
+      }
+      return function;
+    }
+  }
 }
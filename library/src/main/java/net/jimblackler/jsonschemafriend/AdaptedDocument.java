@@ -0,0 +1,173 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/** Map and List views over the nodes of a tree read through a {@link DocumentAdapter}. */
+class AdaptedDocument {
+  private static final Object NOT_READ = new Object();
+
+  private AdaptedDocument() {}
+
+  /**
+   * Returns the adapter from the given list that handles the document, or null if it is a
+   * document of Maps and Lists or no adapter handles it.
+   */
+  static DocumentAdapter findAdapter(Object document, Iterable<DocumentAdapter> adapters) {
+    if (document instanceof Map || document instanceof List) {
+      return null;
+    }
+    for (DocumentAdapter adapter : adapters) {
+      if (adapter.handles(document)) {
+        return adapter;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the node as a Map or List view, or its scalar value. */
+  static Object wrap(DocumentAdapter adapter, Object unresolved) {
+    Object node = adapter.resolve(unresolved);
+    switch (adapter.getType(node)) {
+      case OBJECT:
+        return new ObjectView(adapter, node);
+      case ARRAY:
+        return new ArrayView(adapter, node);
+      case STRING:
+        return adapter.getString(node);
+      case NUMBER:
+        return adapter.getNumber(node);
+      case BOOLEAN:
+        return adapter.getBoolean(node);
+      default:
+        return null;
+    }
+  }
+
+  private static class ObjectView extends AbstractMap<String, Object> {
+    private final DocumentAdapter adapter;
+    private final Object node;
+    // Values that have been read, or replaced by the validator.
+    private Map<String, Object> values;
+
+    ObjectView(DocumentAdapter adapter, Object node) {
+      this.adapter = adapter;
+      this.node = node;
+    }
+
+    @Override
+    public int size() {
+      return adapter.size(node);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && adapter.hasProperty(node, (String) key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      if (values == null) {
+        values = new HashMap<>();
+      }
+      return values.computeIfAbsent(
+          (String) key, property -> wrap(adapter, adapter.getProperty(node, property)));
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      if (!containsKey(key)) {
+        throw new UnsupportedOperationException("Properties cannot be added to the document");
+      }
+      Object old = get(key);
+      values.put(key, value);
+      return old;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          Iterator<String> names = adapter.getPropertyNames(node).iterator();
+          return new Iterator<Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+              return names.hasNext();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              String name = names.next();
+              return new SimpleEntry<String, Object>(name, null) {
+                @Override
+                public Object getValue() {
+                  return ObjectView.this.get(name);
+                }
+
+                @Override
+                public Object setValue(Object value) {
+                  return ObjectView.this.put(name, value);
+                }
+              };
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return adapter.size(node);
+        }
+      };
+    }
+  }
+
+  private static class ArrayView extends AbstractList<Object> implements RandomAccess {
+    private final DocumentAdapter adapter;
+    private final Object node;
+    // Items that have been read, or replaced by the validator.
+    private Object[] values;
+
+    ArrayView(DocumentAdapter adapter, Object node) {
+      this.adapter = adapter;
+      this.node = node;
+    }
+
+    @Override
+    public Object get(int index) {
+      if (values == null) {
+        values = new Object[adapter.size(node)];
+        Arrays.fill(values, NOT_READ);
+      }
+      Object value = values[index];
+      if (value == NOT_READ) {
+        value = wrap(adapter, adapter.getItem(node, index));
+        values[index] = value;
+      }
+      return value;
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+      Object old = get(index);
+      values[index] = value;
+      return old;
+    }
+
+    @Override
+    public int size() {
+      return adapter.size(node);
+    }
+  }
+}
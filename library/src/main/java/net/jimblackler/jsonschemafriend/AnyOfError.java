@@ -13,6 +13,12 @@ public class AnyOfError extends ValidationError {
     this.allErrors = Collections.unmodifiableList(allErrors);
   }
 
+  AnyOfError(
+      InstancePath path, Object object, List<List<ValidationError>> allErrors, Schema schema) {
+    super(path, object, schema);
+    this.allErrors = Collections.unmodifiableList(allErrors);
+  }
+
   public List<List<ValidationError>> getAllErrors() {
     return allErrors;
   }
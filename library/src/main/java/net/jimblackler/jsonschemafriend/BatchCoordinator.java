@@ -0,0 +1,487 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import net.jimblackler.jsonschemafriend.BatchValidator.Summary;
+
+/**
+ * Validates a newline-delimited JSON file with several worker processes on the local host, so that
+ * a run is not limited by the heap and garbage collection of one JVM. The file is split at line
+ * ends into shards of about a given size, which are sent to the workers as they become free. Each
+ * worker validates its shards with a BatchValidator. A shard that fails, including one whose worker
+ * exits, is run again on a new worker, up to a given number of attempts.
+ *
+ * <p>Workers read requests from their standard input and reply on their standard output. A request
+ * is the start and end offsets of a shard, as two longs. The reply is a sequence of frames, each a
+ * type byte followed by its content: output and error output frames hold an int length and that
+ * many bytes, and the reply ends with a done frame holding the counts of the shard, or a failed
+ * frame holding a message. Workers exit when their standard input is closed.
+ *
+ * <p>The output of each shard is held in temporary files until the shards before it have been
+ * written, so the merged output is in the order of the input, and the line numbers of errors are
+ * counted from the start of the file.
+ */
+final class BatchCoordinator {
+  private static final byte OUTPUT = 'O';
+  private static final byte ERROR_OUTPUT = 'E';
+  private static final byte DONE = 'D';
+  private static final byte FAILED = 'F';
+  private static final int FRAME_BYTES = 1 << 16;
+  private static final int MAX_MESSAGE_LENGTH = 1000;
+  private static final byte[] LINE_PREFIX = "{\"line\":".getBytes(StandardCharsets.US_ASCII);
+
+  private final List<String> workerCommand;
+  private final int processes;
+  private final long shardBytes;
+  private final int maxAttempts;
+  private final PrintStream log;
+
+  /**
+   * @param workerCommand The command that starts a worker for the file to be validated.
+   * @param processes The number of workers to run at once.
+   * @param shardBytes The approximate size of each shard.
+   * @param maxAttempts The number of times a shard is run before the validation fails.
+   * @param log The stream to which shard failures are reported.
+   */
+  BatchCoordinator(
+      List<String> workerCommand,
+      int processes,
+      long shardBytes,
+      int maxAttempts,
+      PrintStream log) {
+    if (processes < 1 || shardBytes < 1 || maxAttempts < 1) {
+      throw new IllegalArgumentException(
+          "processes, shardBytes and maxAttempts must be at least 1");
+    }
+    this.workerCommand = workerCommand;
+    this.processes = processes;
+    this.shardBytes = shardBytes;
+    this.maxAttempts = maxAttempts;
+    this.log = log;
+  }
+
+  /**
+   * Returns the command that runs a worker in a new JVM, with the java executable and class path of
+   * this one.
+   */
+  static List<String> workerCommand(String schemaPath, String dataPath, int threads) {
+    return Arrays.asList(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp",
+        System.getProperty("java.class.path"),
+        Validator.class.getName(),
+        schemaPath,
+        dataPath,
+        "--worker",
+        "--threads",
+        String.valueOf(threads));
+  }
+
+  /**
+   * Validates each line of a UTF-8 file with the workers. The output streams are flushed but not
+   * closed.
+   *
+   * @return The counts of the documents that were read.
+   */
+  Summary validate(File input, OutputStream output, OutputStream errorOutput) throws IOException {
+    long start = System.nanoTime();
+    List<Shard> shards = split(input);
+    Run run = new Run(shards, Files.createTempDirectory("shards"));
+    // The runners wait on the workers, so they need no processor of their own.
+    ExecutorService runners = Threads.newBlockingTaskExecutor();
+    try {
+      for (int idx = 0; idx != processes; idx++) {
+        runners.execute(run::runWorker);
+      }
+      Summary summary = new Summary();
+      for (Shard shard : shards) {
+        Summary shardSummary = shard.result.get();
+        Files.copy(shard.output, output);
+        copyErrors(shard.errorOutput, errorOutput, summary.getLines());
+        Files.delete(shard.output);
+        Files.delete(shard.errorOutput);
+        summary.add(shardSummary);
+      }
+      output.flush();
+      errorOutput.flush();
+      summary.setNanos(System.nanoTime() - start);
+      return summary;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw new IOException("A shard could not be validated: " + cause.getMessage(), cause);
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      run.stop();
+      runners.shutdownNow();
+      try {
+        for (Shard shard : shards) {
+          Files.deleteIfExists(shard.output);
+          Files.deleteIfExists(shard.errorOutput);
+        }
+        Files.deleteIfExists(run.spool);
+      } catch (IOException e) {
+        // A worker thread may still be writing; the files are left in the temporary directory.
+      }
+    }
+  }
+
+  /** Splits a file into shards that end at a newline. */
+  private List<Shard> split(File input) throws IOException {
+    List<Shard> shards = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long start = 0;
+      while (start < size) {
+        long end = BatchValidator.nextLineStart(channel, Math.min(start + shardBytes, size), size);
+        shards.add(new Shard(start, end));
+        start = end;
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * Copies the error records of a shard, adding the number of lines of the shards before it to the
+   * line number that starts each record.
+   */
+  private static void copyErrors(Path errors, OutputStream errorOutput, long lineOffset)
+      throws IOException {
+    if (lineOffset == 0) {
+      Files.copy(errors, errorOutput);
+      return;
+    }
+    try (InputStream in = Files.newInputStream(errors)) {
+      byte[] buffer = new byte[FRAME_BYTES];
+      int start = 0;
+      int scanned = 0;
+      int end = 0;
+      while (true) {
+        while (scanned < end && buffer[scanned] != '\n') {
+          scanned++;
+        }
+        if (scanned < end) {
+          writeRecord(buffer, start, scanned + 1, errorOutput, lineOffset);
+          start = ++scanned;
+          continue;
+        }
+        if (start > 0) {
+          System.arraycopy(buffer, start, buffer, 0, end - start);
+          end -= start;
+          scanned = end;
+          start = 0;
+        } else if (end == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, end, buffer.length - end);
+        if (read == -1) {
+          if (end > 0) {
+            throw new IOException("The error output of a shard ends within a record");
+          }
+          return;
+        }
+        end += read;
+      }
+    }
+  }
+
+  private static void writeRecord(
+      byte[] buffer, int start, int end, OutputStream errorOutput, long lineOffset)
+      throws IOException {
+    int position = start + LINE_PREFIX.length;
+    if (end < position
+        || !Arrays.equals(Arrays.copyOfRange(buffer, start, position), LINE_PREFIX)) {
+      throw new IOException("An error record of a shard does not start with its line number");
+    }
+    long line = 0;
+    while (buffer[position] >= '0' && buffer[position] <= '9') {
+      line = line * 10 + buffer[position++] - '0';
+    }
+    errorOutput.write(LINE_PREFIX);
+    errorOutput.write(Long.toString(line + lineOffset).getBytes(StandardCharsets.US_ASCII));
+    errorOutput.write(buffer, position, end - position);
+  }
+
+  /**
+   * Runs a worker: validates the shards of a file that are requested on the input, and writes the
+   * replies to the output, until the input is closed.
+   */
+  static void serve(BatchValidator batchValidator, File input, InputStream in, OutputStream out)
+      throws IOException {
+    DataInputStream requests = new DataInputStream(new BufferedInputStream(in));
+    DataOutputStream replies = new DataOutputStream(new BufferedOutputStream(out, FRAME_BYTES));
+    while (true) {
+      long start;
+      try {
+        start = requests.readLong();
+      } catch (EOFException e) {
+        return;
+      }
+      long end = requests.readLong();
+      try {
+        Summary summary =
+            batchValidator.validate(
+                input,
+                start,
+                end,
+                new FrameOutputStream(replies, OUTPUT),
+                new FrameOutputStream(replies, ERROR_OUTPUT));
+        replies.writeByte(DONE);
+        summary.write(replies);
+      } catch (IOException | RuntimeException e) {
+        String message = String.valueOf(e);
+        replies.writeByte(FAILED);
+        replies.writeUTF(message.substring(0, Math.min(message.length(), MAX_MESSAGE_LENGTH)));
+      }
+      replies.flush();
+    }
+  }
+
+  /** A byte range of the input, and where its output is held until it is merged. */
+  private static class Shard {
+    final long start;
+    final long end;
+    final CompletableFuture<Summary> result = new CompletableFuture<>();
+    Path output;
+    Path errorOutput;
+    int attempts;
+
+    Shard(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /** The shards of one validation that remain to be run, and the workers running them. */
+  private class Run {
+    private final BlockingQueue<Shard> queue;
+    private final Path spool;
+    private final Set<Worker> workers = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean stopped;
+
+    Run(List<Shard> shards, Path spool) {
+      queue = new LinkedBlockingQueue<>(shards);
+      this.spool = spool;
+      for (int idx = 0; idx != shards.size(); idx++) {
+        shards.get(idx).output = spool.resolve(idx + ".out");
+        shards.get(idx).errorOutput = spool.resolve(idx + ".err");
+      }
+    }
+
+    /** Runs shards on a worker, replacing the worker after a failure, until none remain. */
+    void runWorker() {
+      Worker worker = null;
+      try {
+        Shard shard;
+        while ((shard = queue.poll()) != null) {
+          try {
+            if (worker == null) {
+              worker = start();
+              if (worker == null) {
+                return;
+              }
+            }
+            shard.result.complete(worker.validate(shard));
+          } catch (IOException e) {
+            if (worker != null) {
+              end(worker, true);
+              worker = null;
+            }
+            if (stopped) {
+              return;
+            }
+            shard.attempts++;
+            if (shard.attempts < maxAttempts) {
+              log.println(
+                  "Shard at offset " + shard.start + " failed and will be run again: " + e);
+              queue.add(shard);
+            } else {
+              shard.result.completeExceptionally(e);
+            }
+          }
+        }
+      } finally {
+        if (worker != null) {
+          end(worker, false);
+        }
+      }
+    }
+
+    /** Starts a worker, unless the run has been stopped. */
+    private Worker start() throws IOException {
+      lock.lock();
+      try {
+        if (stopped) {
+          return null;
+        }
+        Worker worker = new Worker();
+        workers.add(worker);
+        return worker;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void end(Worker worker, boolean failed) {
+      lock.lock();
+      try {
+        workers.remove(worker);
+        worker.close(failed);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Ends the workers, which unblocks any thread waiting on their replies. */
+    void stop() {
+      lock.lock();
+      try {
+        stopped = true;
+        for (Worker worker : workers) {
+          worker.close(true);
+        }
+        workers.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** A worker process, and the streams of its protocol. */
+  private class Worker {
+    private final Process process;
+    private final DataInputStream replies;
+    private final DataOutputStream requests;
+
+    Worker() throws IOException {
+      process =
+          new ProcessBuilder(workerCommand).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+      replies = new DataInputStream(new BufferedInputStream(process.getInputStream(), FRAME_BYTES));
+      requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    }
+
+    /** Runs a shard, holding its output in the files of the shard. */
+    Summary validate(Shard shard) throws IOException {
+      requests.writeLong(shard.start);
+      requests.writeLong(shard.end);
+      requests.flush();
+      byte[] buffer = new byte[FRAME_BYTES];
+      try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(shard.output));
+          OutputStream errorOutput =
+              new BufferedOutputStream(Files.newOutputStream(shard.errorOutput))) {
+        while (true) {
+          byte type = replies.readByte();
+          switch (type) {
+            case OUTPUT:
+            case ERROR_OUTPUT:
+              int length = replies.readInt();
+              OutputStream target = type == OUTPUT ? output : errorOutput;
+              while (length > 0) {
+                int count = Math.min(length, buffer.length);
+                replies.readFully(buffer, 0, count);
+                target.write(buffer, 0, count);
+                length -= count;
+              }
+              break;
+            case DONE:
+              return Summary.read(replies);
+            case FAILED:
+              throw new IOException(replies.readUTF());
+            default:
+              throw new IOException("Unexpected reply from a worker: " + type);
+          }
+        }
+      }
+    }
+
+    /** Closes the input of the worker, so that it exits, or ends it at once if it failed. */
+    void close(boolean failed) {
+      if (failed) {
+        process.destroyForcibly();
+        return;
+      }
+      try {
+        requests.close();
+      } catch (IOException e) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  /** Writes its content to a reply as frames of the given type. */
+  private static class FrameOutputStream extends OutputStream {
+    private final DataOutputStream replies;
+    private final byte type;
+    private final byte[] buffer = new byte[FRAME_BYTES];
+    private int count;
+
+    FrameOutputStream(DataOutputStream replies, byte type) {
+      this.replies = replies;
+      this.type = type;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length) {
+        flush();
+      }
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (count == buffer.length) {
+          flush();
+        }
+        int copied = Math.min(length, buffer.length - count);
+        System.arraycopy(bytes, offset, buffer, count, copied);
+        count += copied;
+        offset += copied;
+        length -= copied;
+      }
+    }
+
+    /** Writes any pending content as a frame. The reply itself is flushed when it is complete. */
+    @Override
+    public void flush() throws IOException {
+      if (count > 0) {
+        replies.writeByte(type);
+        replies.writeInt(count);
+        replies.write(buffer, 0, count);
+        count = 0;
+      }
+    }
+  }
+}
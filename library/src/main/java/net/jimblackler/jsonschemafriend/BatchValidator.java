@@ -0,0 +1,873 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Validates newline-delimited JSON documents in parallel. The input is read in batches, which are
+ * validated by a pool of worker threads and written in the order they were read. The number of
+ * batches read ahead of the output is bounded, so memory use does not grow with the input.
+ *
+ * <p>Documents that pass are written to the output, with any values transformed by validation. For
+ * documents that fail or cannot be read, a line with the line number and the errors in the basic
+ * output format is written to the error output. Blank lines are skipped.
+ */
+public class BatchValidator {
+  // Each document is followed by a newline rather than separated from the next by a space.
+  private static final JsonFactory JSON_FACTORY =
+      new ObjectMapper(new JsonFactoryBuilder().rootValueSeparator((String) null).build())
+          .getFactory();
+  private static final int BATCH_LINES = 1000;
+  // Files are split into chunks of about this size, ending at a newline.
+  private static final int CHUNK_BYTES = 1 << 20;
+  private static final int SCAN_BYTES = 1 << 16;
+
+  private final Validator validator;
+  private final Schema schema;
+  private final int threads;
+  private final int maxPendingBatches;
+  private final ExecutorService sharedWorkers;
+
+  public BatchValidator(Validator validator, Schema schema) {
+    this(validator, schema, Runtime.getRuntime().availableProcessors());
+  }
+
+  public BatchValidator(Validator validator, Schema schema, int threads) {
+    this(validator, schema, threads, threads * 4);
+  }
+
+  /**
+   * @param threads The number of worker threads that validate documents.
+   * @param maxPendingBatches The number of batches of lines that can be read before the output of
+   *     the earliest has been written.
+   */
+  public BatchValidator(Validator validator, Schema schema, int threads, int maxPendingBatches) {
+    this(validator, schema, threads, maxPendingBatches, null);
+  }
+
+  /**
+   * @param sharedWorkers A pool that validates the batches of every call, or null for each call to
+   *     have a pool of its own. A shared pool is not shut down.
+   */
+  BatchValidator(
+      Validator validator,
+      Schema schema,
+      int threads,
+      int maxPendingBatches,
+      ExecutorService sharedWorkers) {
+    if (threads < 1 || maxPendingBatches < 1) {
+      throw new IllegalArgumentException("threads and maxPendingBatches must be at least 1");
+    }
+    this.validator = validator;
+    this.schema = schema;
+    this.threads = threads;
+    this.maxPendingBatches = maxPendingBatches;
+    this.sharedWorkers = sharedWorkers;
+  }
+
+  /**
+   * Validates each line of the input. The output streams are flushed but not closed.
+   *
+   * @return The counts of the documents that were read.
+   */
+  public Summary validate(Reader input, OutputStream output, OutputStream errorOutput)
+      throws IOException {
+    return validate(
+        (pending, workers) -> readLines(input, pending, workers),
+        output,
+        errorOutput,
+        new Summary(),
+        1,
+        null);
+  }
+
+  /**
+   * Validates each line of a UTF-8 file. The file is memory-mapped and split into chunks at line
+   * ends, and each chunk is read by a worker thread, so reading is not limited to one thread. Lines
+   * are parsed from the bytes of the file without being decoded to strings.
+   */
+  public Summary validate(File input, OutputStream output, OutputStream errorOutput)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      return validate(
+          (pending, workers) -> readChunks(channel, 0, channel.size(), pending, workers),
+          output,
+          errorOutput,
+          new Summary(),
+          1,
+          null);
+    }
+  }
+
+  /**
+   * Validates the lines of a byte range of a UTF-8 file. The range must start at the start of a
+   * line, and line numbers in the error output are counted from it.
+   */
+  Summary validate(File input, long start, long end, OutputStream output, OutputStream errorOutput)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+      if (end > channel.size()) {
+        throw new IOException("The range is beyond the end of " + input);
+      }
+      return validate(
+          (pending, workers) -> readChunks(channel, start, end, pending, workers),
+          output,
+          errorOutput,
+          new Summary(),
+          1,
+          null);
+    }
+  }
+
+  /**
+   * Validates each line of a UTF-8 file, as {@link #validate(File, OutputStream, OutputStream)},
+   * writing to files and recording checkpoints from which an interrupted run can be resumed.
+   *
+   * <p>Each checkpoint records how far the input has been read, the lengths of the output files
+   * and the counts so far. It is written to a temporary file that then replaces the checkpoint
+   * file, so a checkpoint is never partly written. When resuming, the output files are truncated to
+   * the recorded lengths and validation continues from the recorded input offset, so the output is
+   * identical to that of an uninterrupted run.
+   *
+   * @param checkpoint The file that holds the latest checkpoint.
+   * @param checkpointInterval The number of input bytes to read between checkpoints.
+   * @param resume Whether to continue from the checkpoint file, if it exists, rather than start
+   *     again.
+   */
+  public Summary validate(
+      File input,
+      File output,
+      File errorOutput,
+      File checkpoint,
+      long checkpointInterval,
+      boolean resume)
+      throws IOException {
+    Checkpoint state =
+        resume && checkpoint.exists() ? Checkpoint.read(checkpoint) : new Checkpoint();
+    try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ);
+        FileOutputStream outputFile = openAt(output, state.outputLength);
+        FileOutputStream errorOutputFile = openAt(errorOutput, state.errorOutputLength)) {
+      if (state.inputOffset > channel.size()) {
+        throw new IOException("The checkpoint is beyond the end of " + input);
+      }
+      OutputStream bufferedOutput = new BufferedOutputStream(outputFile);
+      OutputStream bufferedErrorOutput = new BufferedOutputStream(errorOutputFile);
+      long inputOffset = state.inputOffset;
+      long[] lastCheckpoint = {inputOffset};
+      return validate(
+          (pending, workers) -> readChunks(channel, inputOffset, channel.size(), pending, workers),
+          bufferedOutput,
+          bufferedErrorOutput,
+          state.summary,
+          state.nextLine,
+          (batchOutput, nextLine, summary) -> {
+            boolean last = batchOutput == null;
+            if (!last && batchOutput.inputEnd - lastCheckpoint[0] < checkpointInterval) {
+              return;
+            }
+            // The output must be on disk before a checkpoint that covers it.
+            bufferedOutput.flush();
+            bufferedErrorOutput.flush();
+            outputFile.getChannel().force(false);
+            errorOutputFile.getChannel().force(false);
+            state.inputOffset = last ? channel.size() : batchOutput.inputEnd;
+            state.outputLength = outputFile.getChannel().size();
+            state.errorOutputLength = errorOutputFile.getChannel().size();
+            state.nextLine = nextLine;
+            state.summary = summary;
+            state.write(checkpoint);
+            lastCheckpoint[0] = state.inputOffset;
+          });
+    }
+  }
+
+  /** Opens a file for writing, keeping only the given number of bytes of its content. */
+  private static FileOutputStream openAt(File file, long length) throws IOException {
+    if (length == 0) {
+      return new FileOutputStream(file);
+    }
+    FileOutputStream stream = new FileOutputStream(file, true);
+    if (stream.getChannel().size() < length) {
+      stream.close();
+      throw new IOException(file + " is shorter than its length in the checkpoint");
+    }
+    stream.getChannel().truncate(length);
+    return stream;
+  }
+
+  private Summary validate(
+      Producer producer,
+      OutputStream output,
+      OutputStream errorOutput,
+      Summary summary,
+      long firstLine,
+      BatchListener batchListener)
+      throws IOException {
+    long start = System.nanoTime();
+    BlockingQueue<CompletableFuture<BatchOutput>> pending =
+        new ArrayBlockingQueue<>(maxPendingBatches);
+    ExecutorService workers =
+        sharedWorkers == null ? Executors.newFixedThreadPool(threads) : sharedWorkers;
+    ExecutorService reader = Threads.newBlockingTaskExecutor();
+    try {
+      reader.execute(
+          () -> {
+            try {
+              producer.produce(pending, workers);
+              pending.put(CompletableFuture.completedFuture(null));
+            } catch (InterruptedException e) {
+              // The output was abandoned.
+            } catch (IOException | RuntimeException e) {
+              CompletableFuture<BatchOutput> failed = new CompletableFuture<>();
+              failed.completeExceptionally(
+                  e instanceof IOException ? new UncheckedIOException((IOException) e) : e);
+              try {
+                // The queue may be full, so this waits for the writer to take a batch.
+                pending.put(failed);
+              } catch (InterruptedException e1) {
+                // The output was abandoned.
+              }
+            }
+          });
+      while (true) {
+        BatchOutput batchOutput = pending.take().get();
+        if (batchOutput != null) {
+          batchOutput.writeTo(output, errorOutput, firstLine);
+          firstLine += batchOutput.lines;
+          summary.lines += batchOutput.lines;
+          summary.add(batchOutput.summary);
+        }
+        if (batchListener != null) {
+          batchListener.batchWritten(batchOutput, firstLine, summary);
+        }
+        if (batchOutput == null) {
+          break;
+        }
+      }
+      output.flush();
+      errorOutput.flush();
+      summary.nanos = System.nanoTime() - start;
+      return summary;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      reader.shutdownNow();
+      if (workers != sharedWorkers) {
+        workers.shutdownNow();
+      }
+    }
+  }
+
+  /** Reads batches of lines and queues their validation. */
+  private void readLines(
+      Reader input, BlockingQueue<CompletableFuture<BatchOutput>> pending, ExecutorService workers)
+      throws IOException, InterruptedException {
+    BufferedReader bufferedReader = new BufferedReader(input);
+    while (true) {
+      List<String> lines = new ArrayList<>(BATCH_LINES);
+      String line;
+      while (lines.size() < BATCH_LINES && (line = bufferedReader.readLine()) != null) {
+        lines.add(line);
+      }
+      if (lines.isEmpty()) {
+        break;
+      }
+      pending.put(CompletableFuture.supplyAsync(() -> validateLines(lines), workers));
+    }
+  }
+
+  /**
+   * Splits a range of a file into chunks that end at a newline, and queues their validation. Only
+   * the bytes around each chunk end are read here; the chunks themselves are read by the workers.
+   */
+  private void readChunks(
+      FileChannel channel,
+      long start,
+      long size,
+      BlockingQueue<CompletableFuture<BatchOutput>> pending,
+      ExecutorService workers)
+      throws IOException, InterruptedException {
+    while (start < size) {
+      long end = nextLineStart(channel, Math.min(start + CHUNK_BYTES, size), size);
+      long chunkStart = start;
+      long chunkEnd = end;
+      pending.put(
+          CompletableFuture.supplyAsync(
+              () -> validateChunk(channel, chunkStart, chunkEnd), workers));
+      start = end;
+    }
+  }
+
+  /**
+   * Returns the offset of the line that follows the given offset of a file, or the given size if
+   * there is no newline before it.
+   */
+  static long nextLineStart(FileChannel channel, long offset, long size) throws IOException {
+    while (offset < size) {
+      MappedByteBuffer window =
+          channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(SCAN_BYTES, size - offset));
+      for (int idx = 0; idx != window.limit(); idx++) {
+        if (window.get(idx) == '\n') {
+          return offset + idx + 1;
+        }
+      }
+      offset += window.limit();
+    }
+    return size;
+  }
+
+  private BatchOutput validateLines(List<String> lines) {
+    BatchOutput batchOutput = new BatchOutput();
+    try {
+      for (String line : lines) {
+        batchOutput.lines++;
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        Object document;
+        try {
+          document = validator.getObjectReader().readValue(line);
+        } catch (JsonProcessingException e) {
+          batchOutput.writeMalformed(e);
+          continue;
+        }
+        validateDocument(document, batchOutput);
+      }
+      batchOutput.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return batchOutput;
+  }
+
+  private BatchOutput validateChunk(FileChannel channel, long start, long end) {
+    BatchOutput batchOutput = new BatchOutput();
+    batchOutput.inputEnd = end;
+    try {
+      // Jackson parses byte arrays rather than buffers, so the chunk is copied once, in bulk.
+      byte[] bytes = new byte[(int) (end - start)];
+      channel.map(FileChannel.MapMode.READ_ONLY, start, bytes.length).get(bytes);
+      int lineStart = 0;
+      while (lineStart < bytes.length) {
+        int lineEnd = lineStart;
+        while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+          lineEnd++;
+        }
+        int next = lineEnd + 1;
+        if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+          lineEnd--;
+        }
+        batchOutput.lines++;
+        if (!isBlank(bytes, lineStart, lineEnd)) {
+          Object document = null;
+          boolean malformed = false;
+          try {
+            document =
+                validator.getObjectReader().readValue(bytes, lineStart, lineEnd - lineStart);
+          } catch (JsonProcessingException e) {
+            batchOutput.writeMalformed(e);
+            malformed = true;
+          }
+          if (!malformed) {
+            validateDocument(document, batchOutput);
+          }
+        }
+        lineStart = next;
+      }
+      batchOutput.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return batchOutput;
+  }
+
+  private static boolean isBlank(byte[] bytes, int start, int end) {
+    for (int idx = start; idx != end; idx++) {
+      if (bytes[idx] < 0 || bytes[idx] > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void validateDocument(Object document, BatchOutput batchOutput) throws IOException {
+    List<ValidationError> errors = new ArrayList<>();
+    Object result = validator.validate(schema, document, errors::add);
+    if (errors.isEmpty()) {
+      batchOutput.writeValid(result);
+    } else {
+      batchOutput.writeInvalid(errors);
+    }
+  }
+
+  /**
+   * Runs the batch validator from the command line.
+   *
+   * @return The exit status: 0 if every document passed, 1 if any failed or could not be read, and
+   *     2 if the arguments or files could not be used.
+   */
+  static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+    String schemaPath = null;
+    String dataPath = null;
+    String outputPath = null;
+    String errorOutputPath = null;
+    String checkpointPath = null;
+    String directoryPath = null;
+    String cachePath = null;
+    int daemonPort = -1;
+    long checkpointInterval = 256L << 20;
+    boolean resume = false;
+    boolean worker = false;
+    int processes = 0;
+    long shardBytes = 64L << 20;
+    int retries = 2;
+    int threads = 0;
+    int maxPendingBatches = 0;
+    try {
+      for (int idx = 0; idx < args.length; idx++) {
+        String arg = args[idx];
+        if (arg.equals("--threads")) {
+          threads = Integer.parseInt(args[++idx]);
+        } else if (arg.equals("--queue")) {
+          maxPendingBatches = Integer.parseInt(args[++idx]);
+        } else if (arg.equals("--output")) {
+          outputPath = args[++idx];
+        } else if (arg.equals("--errors")) {
+          errorOutputPath = args[++idx];
+        } else if (arg.equals("--checkpoint")) {
+          checkpointPath = args[++idx];
+        } else if (arg.equals("--checkpoint-interval")) {
+          checkpointInterval = Long.parseLong(args[++idx]) << 20;
+        } else if (arg.equals("--resume")) {
+          resume = true;
+        } else if (arg.equals("--processes")) {
+          processes = Integer.parseInt(args[++idx]);
+        } else if (arg.equals("--shard-size")) {
+          shardBytes = Long.parseLong(args[++idx]) << 20;
+        } else if (arg.equals("--retries")) {
+          retries = Integer.parseInt(args[++idx]);
+        } else if (arg.equals("--worker")) {
+          worker = true;
+        } else if (arg.equals("--directory")) {
+          directoryPath = args[++idx];
+        } else if (arg.equals("--cache")) {
+          cachePath = args[++idx];
+        } else if (arg.equals("--daemon")) {
+          daemonPort = Integer.parseInt(args[++idx]);
+        } else if (schemaPath == null) {
+          schemaPath = arg;
+        } else if (dataPath == null) {
+          dataPath = arg;
+        } else {
+          throw new IllegalArgumentException("Unexpected argument: " + arg);
+        }
+      }
+      if (daemonPort != -1) {
+        if (schemaPath != null) {
+          throw new IllegalArgumentException("Schemas are given to the daemon with each request");
+        }
+        if (dataPath != null
+            || directoryPath != null
+            || outputPath != null
+            || errorOutputPath != null
+            || checkpointPath != null
+            || cachePath != null
+            || resume
+            || worker
+            || processes > 0
+            || maxPendingBatches > 0) {
+          throw new IllegalArgumentException("The daemon can only be given --threads");
+        }
+      } else if (schemaPath == null || (dataPath == null) == (directoryPath == null)) {
+        throw new IllegalArgumentException(
+            "A schema file, and a data file or a directory, are required");
+      }
+      if (directoryPath != null
+          && (outputPath != null || checkpointPath != null || processes > 0 || worker)) {
+        throw new IllegalArgumentException(
+            "A directory can only be validated with --threads, --errors and --cache");
+      }
+      if (checkpointPath != null
+          && (dataPath.equals("-") || outputPath == null || errorOutputPath == null)) {
+        throw new IllegalArgumentException(
+            "Checkpoints need a data file, and --output and --errors files");
+      }
+      if ((processes > 0 || worker) && (dataPath.equals("-") || checkpointPath != null)) {
+        throw new IllegalArgumentException("Processes need a data file, and no checkpoint");
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      err.println(e.getMessage());
+      err.println(
+          "Usage: <schema file> <data file, or - for standard input, or --directory <directory> "
+              + "[--cache <file>]> [--threads <count>] "
+              + "[--queue <batches>] [--output <file>] [--errors <file>] "
+              + "[--checkpoint <file> [--checkpoint-interval <MiB>] [--resume]] "
+              + "[--processes <count> [--shard-size <MiB>] [--retries <count>]]\n"
+              + "   or: --daemon <port> [--threads <count>]");
+      return 2;
+    }
+
+    if (threads == 0) {
+      threads = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, processes));
+    }
+    if (daemonPort != -1) {
+      ValidationDaemon daemon = new ValidationDaemon(new Validator(), threads);
+      try {
+        InetSocketAddress address = daemon.start(daemonPort);
+        err.println("Listening on http://127.0.0.1:" + address.getPort() + "/validate");
+      } catch (IOException e) {
+        err.println(e);
+        return 2;
+      }
+      Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+      try {
+        // The daemon runs until the process is ended.
+        Thread.sleep(Long.MAX_VALUE);
+      } catch (InterruptedException e) {
+        daemon.stop();
+      }
+      return 0;
+    }
+    try {
+      Schema schema = new SchemaStore().loadSchema(new File(schemaPath));
+      BatchValidator batchValidator =
+          new BatchValidator(
+              new Validator(),
+              schema,
+              threads,
+              maxPendingBatches == 0 ? threads * 4 : maxPendingBatches);
+      if (worker) {
+        BatchCoordinator.serve(batchValidator, new File(dataPath), in, out);
+        return 0;
+      }
+      if (directoryPath != null) {
+        try (OutputStream errorOutput =
+            errorOutputPath == null ? null : new FileOutputStream(errorOutputPath)) {
+          DirectoryValidator.Summary summary =
+              new DirectoryValidator(new Validator(), schema, threads)
+                  .validate(
+                      new File(directoryPath),
+                      errorOutput == null ? err : new BufferedOutputStream(errorOutput),
+                      cachePath == null ? null : new File(cachePath));
+          err.println(summary);
+          return summary.getValid() == summary.getFiles() ? 0 : 1;
+        }
+      }
+      Summary summary;
+      if (checkpointPath != null) {
+        summary =
+            batchValidator.validate(
+                new File(dataPath),
+                new File(outputPath),
+                new File(errorOutputPath),
+                new File(checkpointPath),
+                checkpointInterval,
+                resume);
+      } else {
+        try (OutputStream output = outputPath == null ? null : new FileOutputStream(outputPath);
+            OutputStream errorOutput =
+                errorOutputPath == null ? null : new FileOutputStream(errorOutputPath)) {
+          OutputStream dataOut = output == null ? out : new BufferedOutputStream(output);
+          OutputStream errorOut =
+              errorOutput == null ? err : new BufferedOutputStream(errorOutput);
+          if (processes > 0) {
+            summary =
+                new BatchCoordinator(
+                        BatchCoordinator.workerCommand(schemaPath, dataPath, threads),
+                        processes,
+                        shardBytes,
+                        retries + 1,
+                        err)
+                    .validate(new File(dataPath), dataOut, errorOut);
+          } else if (dataPath.equals("-")) {
+            summary =
+                batchValidator.validate(
+                    new InputStreamReader(in, StandardCharsets.UTF_8), dataOut, errorOut);
+          } else {
+            summary = batchValidator.validate(new File(dataPath), dataOut, errorOut);
+          }
+        }
+      }
+      err.println(summary);
+      return summary.getValid() == summary.getDocuments() ? 0 : 1;
+    } catch (GenerationException | IOException | IllegalArgumentException e) {
+      err.println(e);
+      return 2;
+    }
+  }
+
+  /** Reads the input and queues the validation of each batch, in order. */
+  private interface Producer {
+    void produce(BlockingQueue<CompletableFuture<BatchOutput>> pending, ExecutorService workers)
+        throws IOException, InterruptedException;
+  }
+
+  /** Called by the writer after each batch is written, and with a null batch at the end. */
+  private interface BatchListener {
+    void batchWritten(BatchOutput batchOutput, long nextLine, Summary summary) throws IOException;
+  }
+
+  /** The progress of a run, as recorded in a checkpoint file. */
+  private static class Checkpoint {
+    long inputOffset;
+    long outputLength;
+    long errorOutputLength;
+    long nextLine = 1;
+    Summary summary = new Summary();
+
+    static Checkpoint read(File file) throws IOException {
+      Map<String, Object> fields =
+          new ObjectMapper().readValue(file, new TypeReference<Map<String, Object>>() {});
+      Checkpoint checkpoint = new Checkpoint();
+      checkpoint.inputOffset = ((Number) fields.get("inputOffset")).longValue();
+      checkpoint.outputLength = ((Number) fields.get("outputLength")).longValue();
+      checkpoint.errorOutputLength = ((Number) fields.get("errorOutputLength")).longValue();
+      checkpoint.nextLine = ((Number) fields.get("nextLine")).longValue();
+      checkpoint.summary.lines = checkpoint.nextLine - 1;
+      checkpoint.summary.documents = ((Number) fields.get("documents")).longValue();
+      checkpoint.summary.valid = ((Number) fields.get("valid")).longValue();
+      checkpoint.summary.invalid = ((Number) fields.get("invalid")).longValue();
+      checkpoint.summary.malformed = ((Number) fields.get("malformed")).longValue();
+      return checkpoint;
+    }
+
+    void write(File file) throws IOException {
+      File temporary = new File(file.getPath() + ".tmp");
+      try (FileOutputStream stream = new FileOutputStream(temporary);
+          JsonGenerator generator = JSON_FACTORY.createGenerator(stream, JsonEncoding.UTF8)) {
+        generator.writeStartObject();
+        generator.writeNumberField("inputOffset", inputOffset);
+        generator.writeNumberField("outputLength", outputLength);
+        generator.writeNumberField("errorOutputLength", errorOutputLength);
+        generator.writeNumberField("nextLine", nextLine);
+        generator.writeNumberField("documents", summary.documents);
+        generator.writeNumberField("valid", summary.valid);
+        generator.writeNumberField("invalid", summary.invalid);
+        generator.writeNumberField("malformed", summary.malformed);
+        generator.writeEndObject();
+        generator.flush();
+        stream.getChannel().force(true);
+      }
+      Files.move(
+          temporary.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /**
+   * The output of a batch of lines, held until it can be written in order. Errors are recorded
+   * against line numbers relative to the batch, as the first line number of a file chunk is not
+   * known until the chunks before it have been read.
+   */
+  private static class BatchOutput {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    private final JsonGenerator generator;
+    private final JsonGenerator errorGenerator;
+    private final OutputUnitWriter outputUnitWriter;
+    private final Summary summary = new Summary();
+    // The relative line number of each error record, and the offset of its end in errorOutput.
+    private long[] errorLines = new long[8];
+    private int[] errorEnds = new int[8];
+    private int errorCount;
+    private long lines;
+    // For batches read from a file, the offset of the byte after the batch.
+    private long inputEnd;
+
+    BatchOutput() {
+      try {
+        generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+        errorGenerator = JSON_FACTORY.createGenerator(errorOutput, JsonEncoding.UTF8);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      outputUnitWriter = new OutputUnitWriter(errorGenerator, OutputFormat.BASIC);
+    }
+
+    void writeValid(Object document) throws IOException {
+      summary.documents++;
+      summary.valid++;
+      generator.writeObject(document);
+      generator.writeRaw('\n');
+    }
+
+    void writeInvalid(List<ValidationError> errors) throws IOException {
+      summary.documents++;
+      summary.invalid++;
+      errorGenerator.writeStartObject();
+      errorGenerator.writeBooleanField("valid", false);
+      errorGenerator.writeArrayFieldStart("errors");
+      for (ValidationError error : errors) {
+        outputUnitWriter.writeError(error);
+      }
+      errorGenerator.writeEndArray();
+      endError();
+    }
+
+    void writeMalformed(JsonProcessingException e) throws IOException {
+      summary.documents++;
+      summary.malformed++;
+      errorGenerator.writeStartObject();
+      errorGenerator.writeBooleanField("valid", false);
+      errorGenerator.writeStringField("error", e.getOriginalMessage());
+      endError();
+    }
+
+    private void endError() throws IOException {
+      errorGenerator.writeEndObject();
+      errorGenerator.flush();
+      if (errorCount == errorLines.length) {
+        errorLines = Arrays.copyOf(errorLines, errorCount * 2);
+        errorEnds = Arrays.copyOf(errorEnds, errorCount * 2);
+      }
+      // The line has already been counted.
+      errorLines[errorCount] = lines - 1;
+      errorEnds[errorCount] = errorOutput.size();
+      errorCount++;
+    }
+
+    void close() throws IOException {
+      generator.close();
+      errorGenerator.close();
+    }
+
+    /** Writes the batch, with the line number added as the first field of each error record. */
+    void writeTo(OutputStream out, OutputStream errorOut, long firstLine) throws IOException {
+      output.writeTo(out);
+      byte[] errorBytes = errorOutput.toByteArray();
+      int start = 0;
+      for (int idx = 0; idx != errorCount; idx++) {
+        // The prefix replaces the opening brace of the record.
+        String prefix = "{\"line\":" + (firstLine + errorLines[idx]) + ",";
+        errorOut.write(prefix.getBytes(StandardCharsets.US_ASCII));
+        errorOut.write(errorBytes, start + 1, errorEnds[idx] - start - 1);
+        errorOut.write('\n');
+        start = errorEnds[idx];
+      }
+    }
+  }
+
+  /** The counts of the documents read by a batch validation. */
+  public static class Summary {
+    private long documents;
+    private long valid;
+    private long invalid;
+    private long malformed;
+    private long lines;
+    private long nanos;
+
+    void add(Summary other) {
+      documents += other.documents;
+      valid += other.valid;
+      invalid += other.invalid;
+      malformed += other.malformed;
+      lines += other.lines;
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeLong(documents);
+      out.writeLong(valid);
+      out.writeLong(invalid);
+      out.writeLong(malformed);
+      out.writeLong(lines);
+    }
+
+    static Summary read(DataInput in) throws IOException {
+      Summary summary = new Summary();
+      summary.documents = in.readLong();
+      summary.valid = in.readLong();
+      summary.invalid = in.readLong();
+      summary.malformed = in.readLong();
+      summary.lines = in.readLong();
+      return summary;
+    }
+
+    /** The number of lines that were read, including blank lines. */
+    long getLines() {
+      return lines;
+    }
+
+    void setNanos(long nanos) {
+      this.nanos = nanos;
+    }
+
+    /** The number of non-blank lines that were read. */
+    public long getDocuments() {
+      return documents;
+    }
+
+    public long getValid() {
+      return valid;
+    }
+
+    public long getInvalid() {
+      return invalid;
+    }
+
+    /** The number of lines that were not well-formed JSON. */
+    public long getMalformed() {
+      return malformed;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      double seconds = nanos / 1e9;
+      return String.format(
+          "%d documents: %d valid, %d invalid, %d malformed in %.3f s (%.0f documents/s)",
+          documents, valid, invalid, malformed, seconds, seconds > 0 ? documents / seconds : 0.0);
+    }
+  }
+}
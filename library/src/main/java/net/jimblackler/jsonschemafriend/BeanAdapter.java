@@ -0,0 +1,467 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads Java objects such as beans, records and collections as documents, so that objects can be
+ * validated before they are serialized, without first being converted to Maps and Lists.
+ *
+ * <p>Properties are those that the ObjectMapper's bean serializer would write, including its
+ * naming, any Jackson annotations and the inclusion rules of @JsonInclude. The accessors of each
+ * class are found once, and are then read through cached MethodHandles. Classes that the
+ * ObjectMapper does not serialize as plain beans, such as dates and UUIDs, classes with custom
+ * serializers and beans with an @JsonAnyGetter, @JsonUnwrapped, type information or NON_DEFAULT
+ * or custom inclusion, are converted once with the ObjectMapper when they are read. An instance
+ * should be reused so that its accessors are too.
+ */
+public class BeanAdapter implements DocumentAdapter {
+  private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  private final ObjectMapper objectMapper;
+  private final ClassValue<BeanProperties> properties =
+      new ClassValue<BeanProperties>() {
+        @Override
+        protected BeanProperties computeValue(Class<?> type) {
+          return findProperties(type);
+        }
+      };
+
+  public BeanAdapter() {
+    this(new ObjectMapper());
+  }
+
+  /** @param objectMapper The ObjectMapper whose configuration decides the properties of beans. */
+  public BeanAdapter(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Returns the serialized properties of a class, or null if the class is not serialized as a bean
+   * whose properties can be read directly.
+   */
+  @SuppressWarnings("deprecation")
+  private BeanProperties findProperties(Class<?> type) {
+    String typeName = type.getName();
+    if (typeName.startsWith("java.") || typeName.startsWith("javax.")) {
+      return null;
+    }
+    SerializationConfig config = objectMapper.getSerializationConfig();
+    SerializerProvider provider = objectMapper.getSerializerProviderInstance();
+    AnnotationIntrospector introspector = config.getAnnotationIntrospector();
+    JavaType javaType = objectMapper.constructType(type);
+    BeanDescription description = config.introspect(javaType);
+    JsonSerializer<Object> serializer;
+    try {
+      if (config.getActiveView() != null
+          || description.findAnyGetter() != null
+          || description.getObjectIdInfo() != null
+          || introspector.findFilterId(description.getClassInfo()) != null
+          || objectMapper.getSerializerFactory().createTypeSerializer(config, javaType) != null) {
+        return null;
+      }
+      serializer = provider.findValueSerializer(type);
+    } catch (JsonMappingException e) {
+      return null;
+    }
+    // Subclasses of BeanSerializer, such as those that write beans as arrays, and serializers
+    // replaced by modules, write something other than the properties.
+    if (serializer.getClass() != BeanSerializer.class) {
+      return null;
+    }
+    // As the bean serializer does, annotations on the class override the configured inclusion.
+    JsonInclude.Value classInclusion =
+        description.findPropertyInclusion(config.getDefaultPropertyInclusion(type));
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    Map<String, Property> properties = new LinkedHashMap<>();
+    for (Iterator<PropertyWriter> it = ((BeanSerializer) serializer).properties(); it.hasNext(); ) {
+      PropertyWriter writer = it.next();
+      if (!(writer instanceof BeanPropertyWriter)) {
+        return null;
+      }
+      BeanPropertyWriter beanPropertyWriter = (BeanPropertyWriter) writer;
+      AnnotatedMember accessor = writer.getMember();
+      Member member = accessor == null ? null : accessor.getMember();
+      if (!(member instanceof Method || member instanceof Field)
+          || beanPropertyWriter.isUnwrapping()
+          || writesOtherValue(introspector, accessor, config, type, beanPropertyWriter)) {
+        return null;
+      }
+      JsonInclude.Value inclusion =
+          config
+              .getDefaultInclusion(type, accessor.getRawType(), classInclusion)
+              .withOverrides(introspector.findPropertyInclusion(accessor));
+      JavaType propertyType = beanPropertyWriter.getType();
+      boolean suppressEmpty;
+      switch (inclusion.getValueInclusion()) {
+        case NON_EMPTY:
+          suppressEmpty = true;
+          break;
+        case NON_ABSENT:
+          suppressEmpty = propertyType.isReferenceType();
+          break;
+        case NON_DEFAULT:
+        case CUSTOM:
+          // These compare values with those of a default instance or a filter.
+          return null;
+        default:
+          suppressEmpty =
+              propertyType.isContainerType()
+                  && !config.isEnabled(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS);
+      }
+      try {
+        ((AccessibleObject) member).setAccessible(true);
+      } catch (RuntimeException e) {
+        // Public members of public classes are accessible anyway.
+      }
+      try {
+        MethodHandle handle =
+            member instanceof Method
+                ? lookup.unreflect((Method) member)
+                : lookup.unreflectGetter((Field) member);
+        properties.put(
+            writer.getName(),
+            new Property(
+                writer.getName(),
+                handle.asType(ACCESSOR_TYPE),
+                beanPropertyWriter,
+                suppressEmpty));
+      } catch (IllegalAccessException e) {
+        throw new IllegalArgumentException("Cannot read property " + writer.getName(), e);
+      }
+    }
+    return new BeanProperties(properties);
+  }
+
+  /**
+   * Returns true if the serializer of a property writes something other than the value of its
+   * accessor, or applies inclusion rules to the value's contents.
+   */
+  private static boolean writesOtherValue(
+      AnnotationIntrospector introspector,
+      AnnotatedMember accessor,
+      SerializationConfig config,
+      Class<?> type,
+      BeanPropertyWriter writer) {
+    if (introspector.findSerializer(accessor) != null
+        || introspector.findContentSerializer(accessor) != null
+        || introspector.findKeySerializer(accessor) != null
+        || introspector.findNullSerializer(accessor) != null) {
+      return true;
+    }
+    JsonFormat.Value format = introspector.findFormat(accessor);
+    if (format != null && !format.equals(JsonFormat.Value.empty())) {
+      return true;
+    }
+    JsonInclude.Include contentInclusion =
+        writer.findPropertyInclusion(config, type).getContentInclusion();
+    return contentInclusion != JsonInclude.Include.ALWAYS
+        && contentInclusion != JsonInclude.Include.USE_DEFAULTS;
+  }
+
+  /**
+   * Returns a map whose keys are the names of the properties of a bean that its serializer would
+   * write. Nulls and values excluded by @JsonInclude are left out.
+   */
+  private Map<String, ?> getIncluded(Object node) {
+    BeanProperties beanProperties = properties.get(node.getClass());
+    if (beanProperties.alwaysIncluded) {
+      return beanProperties.byName;
+    }
+    Map<String, Object> included = new LinkedHashMap<>();
+    for (Property property : beanProperties.byName.values()) {
+      Object value = property.read(node);
+      if (property.includes(value, objectMapper.getSerializerProviderInstance())) {
+        included.put(property.getName(), property);
+      }
+    }
+    return included;
+  }
+
+  /** Converts an object that is not serialized as a bean to its serialized value. */
+  private Object convert(Object node) {
+    return objectMapper.convertValue(node, Object.class);
+  }
+
+  private boolean isBean(Object node) {
+    return properties.get(node.getClass()) != null;
+  }
+
+  @Override
+  public boolean handles(Object node) {
+    return node != null;
+  }
+
+  @Override
+  public Object resolve(Object node) {
+    if (node instanceof Collection && !(node instanceof List)) {
+      // Sets and other collections are copied once, so that their items can be indexed.
+      return ((Collection<?>) node).toArray();
+    }
+    return getPlainType(node) == null && !isBean(node) ? convert(node) : node;
+  }
+
+  @Override
+  public NodeType getType(Object node) {
+    NodeType type = getPlainType(node);
+    if (type != null) {
+      return type;
+    }
+    if (isBean(node)) {
+      return NodeType.OBJECT;
+    }
+    return getType(convert(node));
+  }
+
+  /** Returns the type of a node that is read without conversion, or null if it is not one. */
+  private static NodeType getPlainType(Object node) {
+    if (node == null) {
+      return NodeType.NULL;
+    }
+    if (node instanceof CharSequence
+        || node instanceof Character
+        || node instanceof Enum
+        || node instanceof byte[]) {
+      return NodeType.STRING;
+    }
+    if (node instanceof Number) {
+      return NodeType.NUMBER;
+    }
+    if (node instanceof Boolean) {
+      return NodeType.BOOLEAN;
+    }
+    if (node instanceof Map) {
+      return NodeType.OBJECT;
+    }
+    if (node instanceof Collection || node.getClass().isArray()) {
+      return NodeType.ARRAY;
+    }
+    return null;
+  }
+
+  @Override
+  public Iterable<String> getPropertyNames(Object node) {
+    if (node instanceof Map) {
+      return () -> {
+        Iterator<?> keys = ((Map<?, ?>) node).keySet().iterator();
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return keys.hasNext();
+          }
+
+          @Override
+          public String next() {
+            return String.valueOf(keys.next());
+          }
+        };
+      };
+    }
+    if (isBean(node)) {
+      return getIncluded(node).keySet();
+    }
+    return getPropertyNames(convert(node));
+  }
+
+  @Override
+  public int size(Object node) {
+    if (node instanceof Map) {
+      return ((Map<?, ?>) node).size();
+    }
+    if (node instanceof Collection) {
+      return ((Collection<?>) node).size();
+    }
+    if (node.getClass().isArray()) {
+      return Array.getLength(node);
+    }
+    if (isBean(node)) {
+      return getIncluded(node).size();
+    }
+    return size(convert(node));
+  }
+
+  @Override
+  public boolean hasProperty(Object node, String name) {
+    if (node instanceof Map) {
+      return findKey((Map<?, ?>) node, name) != null;
+    }
+    if (isBean(node)) {
+      BeanProperties beanProperties = properties.get(node.getClass());
+      Property property = beanProperties.byName.get(name);
+      return property != null
+          && (beanProperties.alwaysIncluded
+              || property.includes(
+                  property.read(node), objectMapper.getSerializerProviderInstance()));
+    }
+    return hasProperty(convert(node), name);
+  }
+
+  @Override
+  public Object getProperty(Object node, String name) {
+    if (node instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) node;
+      Object key = findKey(map, name);
+      return key == null ? null : map.get(key);
+    }
+    if (isBean(node)) {
+      Property property = properties.get(node.getClass()).byName.get(name);
+      if (property == null) {
+        return null;
+      }
+      Object value = property.read(node);
+      return property.includes(value, objectMapper.getSerializerProviderInstance()) ? value : null;
+    }
+    return getProperty(convert(node), name);
+  }
+
+  /** Returns the key of a map that is written as the given property name. */
+  private static Object findKey(Map<?, ?> map, String name) {
+    if (map.containsKey(name)) {
+      return name;
+    }
+    for (Object key : map.keySet()) {
+      if (name.equals(String.valueOf(key))) {
+        return key;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Object getItem(Object node, int index) {
+    if (node instanceof List) {
+      return ((List<?>) node).get(index);
+    }
+    if (node instanceof Object[]) {
+      return ((Object[]) node)[index];
+    }
+    if (node.getClass().isArray()) {
+      return Array.get(node, index);
+    }
+    // Other collections are read by the Validator as the arrays they resolve to.
+    return getItem(resolve(node), index);
+  }
+
+  @Override
+  public String getString(Object node) {
+    if (node instanceof Enum) {
+      return convert(node).toString();
+    }
+    if (node instanceof byte[]) {
+      return Base64.getEncoder().encodeToString((byte[]) node);
+    }
+    if (node instanceof CharSequence || node instanceof Character) {
+      return node.toString();
+    }
+    return getString(convert(node));
+  }
+
+  @Override
+  public Number getNumber(Object node) {
+    return node instanceof Number ? (Number) node : getNumber(convert(node));
+  }
+
+  @Override
+  public boolean getBoolean(Object node) {
+    return node instanceof Boolean ? (Boolean) node : getBoolean(convert(node));
+  }
+
+  /** The serialized properties of a bean class, by name. */
+  private static class BeanProperties {
+    final Map<String, Property> byName;
+    // True if every property is written whatever its value, so the properties of all instances
+    // are the same.
+    final boolean alwaysIncluded;
+
+    BeanProperties(Map<String, Property> byName) {
+      this.byName = Collections.unmodifiableMap(byName);
+      boolean alwaysIncluded = true;
+      for (Property property : byName.values()) {
+        alwaysIncluded &= property.isAlwaysIncluded();
+      }
+      this.alwaysIncluded = alwaysIncluded;
+    }
+  }
+
+  /** A property of a bean, with its accessor and the inclusion rules of its serializer. */
+  private static class Property {
+    private final String name;
+    private final MethodHandle accessor;
+    private final BeanPropertyWriter writer;
+    // True if the serializer leaves the property out when its value is empty.
+    private final boolean suppressEmpty;
+
+    Property(String name, MethodHandle accessor, BeanPropertyWriter writer, boolean suppressEmpty) {
+      this.name = name;
+      this.accessor = accessor;
+      this.writer = writer;
+      this.suppressEmpty = suppressEmpty;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    Object read(Object bean) {
+      try {
+        return (Object) accessor.invokeExact(bean);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    boolean isAlwaysIncluded() {
+      return writer.hasNullSerializer() && !suppressEmpty;
+    }
+
+    /** Returns true if the serializer would write the property with the given value. */
+    boolean includes(Object value, SerializerProvider provider) {
+      if (value == null) {
+        // Nulls are written only by a null serializer, which is not assigned if they are excluded.
+        return writer.hasNullSerializer();
+      }
+      if (!suppressEmpty) {
+        return true;
+      }
+      try {
+        JsonSerializer<Object> serializer =
+            writer.hasSerializer()
+                ? writer.getSerializer()
+                : provider.findValueSerializer(value.getClass());
+        return !serializer.isEmpty(provider, value);
+      } catch (JsonMappingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
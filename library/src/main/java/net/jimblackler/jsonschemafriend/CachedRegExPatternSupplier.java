@@ -1,10 +1,16 @@
 package net.jimblackler.jsonschemafriend;
 
+import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class CachedRegExPatternSupplier implements RegExPatternSupplier {
   private final RegExPatternSupplier wrapped;
-  private final WeakHashMap<String, RegExPattern> map = new WeakHashMap<>();
+  // Locked so that a Validator can be shared between threads. A pattern compiled by two threads at
+  // once is harmless, so compilation happens outside the lock. A ReentrantLock rather than a
+  // monitor does not pin the carrier of a virtual thread.
+  private final Map<String, RegExPattern> map = new WeakHashMap<>();
+  private final ReentrantLock lock = new ReentrantLock();
 
   public CachedRegExPatternSupplier(RegExPatternSupplier wrapped) {
     this.wrapped = wrapped;
@@ -12,10 +18,21 @@ public class CachedRegExPatternSupplier implements RegExPatternSupplier {
 
   @Override
   public RegExPattern newPattern(String pattern) throws InvalidRegexException {
-    RegExPattern regExPattern1 = map.get(pattern);
+    RegExPattern regExPattern1;
+    lock.lock();
+    try {
+      regExPattern1 = map.get(pattern);
+    } finally {
+      lock.unlock();
+    }
     if (regExPattern1 == null) {
       regExPattern1 = wrapped.newPattern(pattern);
-      map.put(pattern, regExPattern1);
+      lock.lock();
+      try {
+        map.put(pattern, regExPattern1);
+      } finally {
+        lock.unlock();
+      }
     }
     return regExPattern1;
   }
@@ -7,6 +7,10 @@ public class ConstError extends ValidationError {
     super(uri, document, schema);
   }
 
+  ConstError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Expected const: " + getSchema().getConst();
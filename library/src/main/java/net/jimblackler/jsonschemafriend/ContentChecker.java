@@ -0,0 +1,222 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Checks the contentEncoding and contentMediaType of strings. Base64 content is decoded as it is
+ * scanned, and JSON content is only checked to be well-formed, so neither the decoded bytes nor a
+ * document are held in memory.
+ */
+final class ContentChecker {
+  private static final String URL_ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+  private static final int[] URL_VALUES = new int[256];
+
+  static {
+    Arrays.fill(URL_VALUES, -1);
+    for (int idx = 0; idx != URL_ALPHABET.length(); idx++) {
+      URL_VALUES[URL_ALPHABET.charAt(idx)] = idx;
+    }
+  }
+
+  private ContentChecker() {}
+
+  /**
+   * Reports the reasons the content of a string is not valid, in the order that
+   * Base64.getUrlDecoder() and the ObjectMapper would find them when the string is decoded and then
+   * read. If the string is not valid base64, its JSON content is checked as it is.
+   */
+  static void check(
+      String string,
+      boolean base64,
+      boolean json,
+      ObjectReader objectReader,
+      Consumer<String> reasonConsumer) {
+    try {
+      if (!base64) {
+        if (json) {
+          checkJson(objectReader, objectReader.createParser(string), reasonConsumer);
+        }
+        return;
+      }
+      Base64UrlInputStream decoded = new Base64UrlInputStream(string);
+      String jsonReason = null;
+      if (json) {
+        try {
+          JsonParser parser =
+              objectReader.createParser(new InputStreamReader(decoded, StandardCharsets.UTF_8));
+          String[] reason = new String[1];
+          checkJson(objectReader, parser, r -> reason[0] = r);
+          jsonReason = reason[0];
+        } catch (IOException e) {
+          // The content is not valid base64; this is reported below.
+        }
+      }
+      String base64Reason = decoded.drain();
+      if (base64Reason != null) {
+        reasonConsumer.accept(base64Reason);
+        if (json) {
+          checkJson(objectReader, objectReader.createParser(string), reasonConsumer);
+        }
+      } else if (jsonReason != null) {
+        reasonConsumer.accept(jsonReason);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Reads the first value from the parser without building it. */
+  private static void checkJson(
+      ObjectReader objectReader, JsonParser parser, Consumer<String> reasonConsumer)
+      throws IOException {
+    try (JsonParser p = parser) {
+      JsonToken token = p.nextToken();
+      if (token == null) {
+        reasonConsumer.accept("No content to map due to end-of-input");
+        return;
+      }
+      if (token == JsonToken.VALUE_STRING) {
+        // The parser only reads a string's content when it is requested or skipped.
+        p.getText();
+      }
+      p.skipChildren();
+      if (objectReader.isEnabled(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+          && p.nextToken() != null) {
+        reasonConsumer.accept(
+            "Trailing token (of type " + p.currentToken() + ") found after value");
+      }
+    } catch (JsonProcessingException e) {
+      reasonConsumer.accept(e.getMessage());
+    }
+  }
+
+  /**
+   * Decodes a base64url string as it is read, with the rules and messages of
+   * Base64.getUrlDecoder().decode(String). As with that method, characters are taken as ISO-8859-1
+   * bytes.
+   */
+  private static class Base64UrlInputStream extends InputStream {
+    private final String string;
+    private final byte[] pending = new byte[3];
+    private int position;
+    private int bits;
+    private int shift = 18;
+    private int pendingStart;
+    private int pendingEnd;
+    private boolean ended;
+    private String reason;
+
+    Base64UrlInputStream(String string) {
+      this.string = string;
+    }
+
+    private byte byteAt(int idx) {
+      char c = string.charAt(idx);
+      return c < 256 ? (byte) c : (byte) '?';
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = 0;
+      while (count < length) {
+        if (pendingStart == pendingEnd) {
+          if (ended) {
+            break;
+          }
+          decodeUnit();
+          continue;
+        }
+        buffer[offset + count++] = pending[pendingStart++];
+      }
+      return count == 0 && length > 0 ? -1 : count;
+    }
+
+    /** Decodes the next four characters, or the final characters of the string. */
+    private void decodeUnit() throws IOException {
+      if (reason != null) {
+        throw new IOException(reason);
+      }
+      pendingStart = 0;
+      pendingEnd = 0;
+      int length = string.length();
+      if (length == 1) {
+        fail("Input byte[] should at least have 2 bytes for base64 bytes");
+      }
+      while (position < length) {
+        byte b = byteAt(position++);
+        int value = URL_VALUES[b & 0xff];
+        if (value < 0) {
+          if (b != '=') {
+            fail("Illegal base64 character " + Integer.toString(b, 16));
+          }
+          if (shift == 6 && (position == length || byteAt(position++) != '=') || shift == 18) {
+            fail("Input byte array has wrong 4-byte ending unit");
+          }
+          break;
+        }
+        bits |= value << shift;
+        shift -= 6;
+        if (shift < 0) {
+          pending[0] = (byte) (bits >> 16);
+          pending[1] = (byte) (bits >> 8);
+          pending[2] = (byte) bits;
+          pendingEnd = 3;
+          shift = 18;
+          bits = 0;
+          return;
+        }
+      }
+      ended = true;
+      if (shift == 6) {
+        pending[0] = (byte) (bits >> 16);
+        pendingEnd = 1;
+      } else if (shift == 0) {
+        pending[0] = (byte) (bits >> 16);
+        pending[1] = (byte) (bits >> 8);
+        pendingEnd = 2;
+      } else if (shift == 12) {
+        fail("Last unit does not have enough valid bits");
+      }
+      if (position < length) {
+        fail("Input byte array has incorrect ending byte at " + position);
+      }
+    }
+
+    private void fail(String reason) throws IOException {
+      this.reason = reason;
+      pendingEnd = 0;
+      throw new IOException(reason);
+    }
+
+    /** Decodes the rest of the string, and returns why it is not valid base64, or null. */
+    String drain() {
+      byte[] buffer = new byte[4096];
+      try {
+        while (read(buffer, 0, buffer.length) != -1) {
+          // Only the outcome is needed.
+        }
+      } catch (IOException e) {
+        // The reason has been recorded.
+      }
+      return reason;
+    }
+  }
+}
@@ -10,6 +10,11 @@ public class ContentEncodingError extends ValidationError {
     this.reason = reason;
   }
 
+  ContentEncodingError(InstancePath path, Object object, Schema schema, String reason) {
+    super(path, object, schema);
+    this.reason = reason;
+  }
+
   @Override
   public String getMessage() {
     return "Content encoding failed on: "
@@ -13,6 +13,13 @@ public class DependencyError extends ValidationError {
     this.dependency = dependency;
   }
 
+  DependencyError(
+      InstancePath path, Object object, String property, String dependency, Schema schema) {
+    super(path, object, schema);
+    this.property = property;
+    this.dependency = dependency;
+  }
+
   @Override
   public String getMessage() {
     return "Missing dependency " + property + " -> " + dependency;
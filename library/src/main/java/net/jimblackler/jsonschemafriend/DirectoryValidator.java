@@ -0,0 +1,406 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validates the JSON files in a directory tree against a schema, in parallel. Results can be kept
+ * in a cache file, so that later runs only validate files that have changed.
+ *
+ * <p>Results are cached against the SHA-256 hash of the content of each file. The cache also
+ * records a hash of the schema and every schema document that it refers to, and the version of the
+ * library; if either differs, the cache is not used. The cache is a single binary file that is
+ * replaced at the end of each run, and holds the results of the files of that run only. Results
+ * also depend on the configuration of the Validator, so a cache file should only be used with
+ * one configuration.
+ */
+public class DirectoryValidator {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  // Schema documents are hashed with the same content always written in the same order.
+  private static final ObjectWriter CANONICAL_WRITER =
+      new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true).writer();
+  private static final int CACHE_MAGIC = 0x4a534643;
+  private static final int CACHE_FORMAT = 1;
+  private static final byte VALID = 0;
+  private static final byte INVALID = 1;
+  private static final byte MALFORMED = 2;
+  private static final String LIBRARY_VERSION = getLibraryVersion();
+
+  private final Validator validator;
+  private final Schema schema;
+  private final int threads;
+  private final byte[] schemaHash;
+
+  public DirectoryValidator(Validator validator, Schema schema) {
+    this(validator, schema, Runtime.getRuntime().availableProcessors());
+  }
+
+  /** @param threads The number of worker threads that read and validate files. */
+  public DirectoryValidator(Validator validator, Schema schema, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.validator = validator;
+    this.schema = schema;
+    this.threads = threads;
+    schemaHash = hashSchema(schema);
+  }
+
+  /** The version of the library from the jar manifest, or "development" if it has none. */
+  private static String getLibraryVersion() {
+    Package p = DirectoryValidator.class.getPackage();
+    String version = p == null ? null : p.getImplementationVersion();
+    return version == null ? "development" : version;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the documents of a schema and of every schema that it refers to, directly or
+   * indirectly, by the URIs that they were loaded from.
+   */
+  static Map<String, Object> getDocuments(Schema schema) {
+    Map<String, Object> documents = new TreeMap<>();
+    Set<Schema> visited = new HashSet<>();
+    Deque<Schema> unvisited = new ArrayDeque<>();
+    unvisited.add(schema);
+    while (!unvisited.isEmpty()) {
+      Schema next = unvisited.remove();
+      if (!visited.add(next)) {
+        continue;
+      }
+      documents.put(UriUtils.withoutFragment(next.getUri()).toString(), next.getBaseObject());
+      unvisited.addAll(next.getSubSchemas().values());
+    }
+    return documents;
+  }
+
+  /** Hashes the documents of a schema, with the URIs that they were loaded from. */
+  static byte[] hashSchema(Schema schema) {
+    Map<String, Object> documents = getDocuments(schema);
+    MessageDigest digest = sha256();
+    Set<Object> hashed = Collections.newSetFromMap(new IdentityHashMap<>());
+    try {
+      for (Map.Entry<String, Object> entry : documents.entrySet()) {
+        digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        // Documents with several resources are reached through each of them.
+        if (hashed.add(entry.getValue())) {
+          digest.update(CANONICAL_WRITER.writeValueAsBytes(entry.getValue()));
+        }
+        digest.update((byte) 0);
+      }
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    return digest.digest();
+  }
+
+  /** Validates every file under a directory whose name ends in .json, without a cache. */
+  public Summary validate(File directory, OutputStream errorOutput) throws IOException {
+    return validate(directory, errorOutput, null);
+  }
+
+  /**
+   * Validates every file under a directory whose name ends in .json. For each file that fails or
+   * is not JSON, a line with its path relative to the directory and its errors in the basic output
+   * format is written to the error output, in order of path. The error output is flushed but not
+   * closed.
+   *
+   * @param cache The cache file, or null to validate every file. The file is created if it does not
+   *     exist.
+   * @return The counts of the files that were read.
+   */
+  public Summary validate(File directory, OutputStream errorOutput, File cache)
+      throws IOException {
+    long start = System.nanoTime();
+    Path root = directory.toPath();
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(root)) {
+      files =
+          paths
+              .filter(
+                  path ->
+                      path.getFileName().toString().endsWith(".json")
+                          && Files.isRegularFile(path))
+              .sorted()
+              .collect(Collectors.toList());
+    }
+    Map<ByteBuffer, Result> cached =
+        cache == null ? Collections.emptyMap() : readCache(cache);
+    Map<ByteBuffer, Result> results = new ConcurrentHashMap<>();
+    ExecutorService workers = Executors.newFixedThreadPool(threads);
+    try {
+      List<CompletableFuture<Result>> pending = new ArrayList<>();
+      for (Path file : files) {
+        pending.add(CompletableFuture.supplyAsync(() -> check(file, cached, results), workers));
+      }
+      Summary summary = new Summary();
+      for (int idx = 0; idx != files.size(); idx++) {
+        Result result = pending.get(idx).get();
+        summary.add(result);
+        if (result.status == VALID) {
+          continue;
+        }
+        // The path replaces the opening brace of the record.
+        String path = root.relativize(files.get(idx)).toString().replace(File.separatorChar, '/');
+        String prefix = "{\"file\":" + OBJECT_MAPPER.writeValueAsString(path) + ",";
+        errorOutput.write(prefix.getBytes(StandardCharsets.UTF_8));
+        errorOutput.write(result.record, 1, result.record.length - 1);
+        errorOutput.write('\n');
+      }
+      errorOutput.flush();
+      if (cache != null) {
+        writeCache(cache, results);
+      }
+      summary.nanos = System.nanoTime() - start;
+      return summary;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  /** Returns the result of a file, from the cache if its content has been validated before. */
+  private Result check(Path file, Map<ByteBuffer, Result> cached, Map<ByteBuffer, Result> results) {
+    try {
+      byte[] bytes = Files.readAllBytes(file);
+      ByteBuffer hash = ByteBuffer.wrap(sha256().digest(bytes));
+      Result result = cached.get(hash);
+      if (result != null) {
+        result = new Result(result.status, result.record, true);
+      } else {
+        result = validate(bytes);
+      }
+      results.put(hash, result);
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Result validate(byte[] bytes) throws IOException {
+    ByteArrayOutputStream record = new ByteArrayOutputStream();
+    try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(record)) {
+      generator.writeStartObject();
+      generator.writeBooleanField("valid", false);
+      Object document;
+      try {
+        document = validator.getObjectReader().readValue(bytes);
+      } catch (JsonProcessingException e) {
+        generator.writeStringField("error", e.getOriginalMessage());
+        generator.writeEndObject();
+        generator.flush();
+        return new Result(MALFORMED, record.toByteArray(), false);
+      }
+      List<ValidationError> errors = new ArrayList<>();
+      validator.validate(schema, document, errors::add);
+      if (errors.isEmpty()) {
+        return new Result(VALID, null, false);
+      }
+      OutputUnitWriter outputUnitWriter = new OutputUnitWriter(generator, OutputFormat.BASIC);
+      generator.writeArrayFieldStart("errors");
+      for (ValidationError error : errors) {
+        outputUnitWriter.writeError(error);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.flush();
+      return new Result(INVALID, record.toByteArray(), false);
+    }
+  }
+
+  /**
+   * Reads the results from a cache file. If the file does not exist, or was written by another
+   * version of the library or for another schema, there are none.
+   */
+  private Map<ByteBuffer, Result> readCache(File cache) throws IOException {
+    Map<ByteBuffer, Result> results = new HashMap<>();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(cache)))) {
+      if (in.readInt() != CACHE_MAGIC
+          || in.readInt() != CACHE_FORMAT
+          || !in.readUTF().equals(LIBRARY_VERSION)) {
+        return results;
+      }
+      byte[] cacheSchemaHash = new byte[schemaHash.length];
+      in.readFully(cacheSchemaHash);
+      if (!Arrays.equals(cacheSchemaHash, schemaHash)) {
+        return results;
+      }
+      int count = in.readInt();
+      for (int idx = 0; idx != count; idx++) {
+        byte[] hash = new byte[schemaHash.length];
+        in.readFully(hash);
+        byte status = in.readByte();
+        byte[] record = null;
+        if (status != VALID) {
+          record = new byte[in.readInt()];
+          in.readFully(record);
+        }
+        results.put(ByteBuffer.wrap(hash), new Result(status, record, true));
+      }
+      return results;
+    } catch (FileNotFoundException | EOFException e) {
+      // There is no cache, or it is not complete.
+      return new HashMap<>();
+    }
+  }
+
+  /** Writes a cache file, through a temporary file so that it is never partly written. */
+  private void writeCache(File cache, Map<ByteBuffer, Result> results) throws IOException {
+    File temporary = new File(cache.getPath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+      out.writeInt(CACHE_MAGIC);
+      out.writeInt(CACHE_FORMAT);
+      out.writeUTF(LIBRARY_VERSION);
+      out.write(schemaHash);
+      out.writeInt(results.size());
+      for (Map.Entry<ByteBuffer, Result> entry : results.entrySet()) {
+        out.write(entry.getKey().array());
+        Result result = entry.getValue();
+        out.writeByte(result.status);
+        if (result.status != VALID) {
+          out.writeInt(result.record.length);
+          out.write(result.record);
+        }
+      }
+    }
+    Files.move(
+        temporary.toPath(),
+        cache.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** The outcome of a file, and for a file that did not pass, its error record. */
+  private static class Result {
+    final byte status;
+    final byte[] record;
+    final boolean cached;
+
+    Result(byte status, byte[] record, boolean cached) {
+      this.status = status;
+      this.record = record;
+      this.cached = cached;
+    }
+  }
+
+  /** The counts of the files read by a directory validation. */
+  public static class Summary {
+    private long files;
+    private long valid;
+    private long invalid;
+    private long malformed;
+    private long cached;
+    private long nanos;
+
+    private void add(Result result) {
+      files++;
+      if (result.status == VALID) {
+        valid++;
+      } else if (result.status == INVALID) {
+        invalid++;
+      } else {
+        malformed++;
+      }
+      if (result.cached) {
+        cached++;
+      }
+    }
+
+    public long getFiles() {
+      return files;
+    }
+
+    public long getValid() {
+      return valid;
+    }
+
+    public long getInvalid() {
+      return invalid;
+    }
+
+    /** The number of files that were not well-formed JSON. */
+    public long getMalformed() {
+      return malformed;
+    }
+
+    /** The number of files whose results were taken from the cache. */
+    public long getCached() {
+      return cached;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d files: %d valid, %d invalid, %d malformed, %d from the cache in %.3f s",
+          files, valid, invalid, malformed, cached, nanos / 1e9);
+    }
+  }
+}
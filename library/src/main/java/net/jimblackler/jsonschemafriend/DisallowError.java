@@ -7,6 +7,10 @@ public class DisallowError extends ValidationError {
     super(uri, document, schema);
   }
 
+  DisallowError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Disallow condition passed";
@@ -7,6 +7,10 @@ public class DivisibleByError extends ValidationError {
     super(uri, document, schema);
   }
 
+  DivisibleByError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Not divisible hy " + getSchema().getDivisibleBy();
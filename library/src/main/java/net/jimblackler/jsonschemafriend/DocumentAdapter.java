@@ -0,0 +1,53 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * Allows the Validator to read documents held in a tree other than Map and List, such as a Jackson
+ * JsonNode or an org.json JSONObject, without converting the tree first.
+ *
+ * <p>The Validator presents adapted trees to its keywords as Map and List views, which read the
+ * nodes of the tree as they are visited. Values replaced by the Validator as it transforms a
+ * document are held in the views; the original tree is not modified.
+ */
+public interface DocumentAdapter {
+  enum NodeType {
+    OBJECT,
+    ARRAY,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL
+  }
+
+  /** Returns true if the node is of a tree this adapter can read. */
+  boolean handles(Object node);
+
+  /**
+   * Returns the node that is given to the other methods in place of the given node. The Validator
+   * calls this once for each node it reads, so that an adapter can convert a node that is costly to
+   * read once rather than on every call. By default the node itself is returned.
+   */
+  default Object resolve(Object node) {
+    return node;
+  }
+
+  NodeType getType(Object node);
+
+  /** Returns the property names of an object node. */
+  Iterable<String> getPropertyNames(Object node);
+
+  /** Returns the number of properties of an object node, or items of an array node. */
+  int size(Object node);
+
+  boolean hasProperty(Object node, String name);
+
+  /** Returns the node of a property of an object node, or null if there is no such property. */
+  Object getProperty(Object node, String name);
+
+  Object getItem(Object node, int index);
+
+  String getString(Object node);
+
+  Number getNumber(Object node);
+
+  boolean getBoolean(Object node);
+}
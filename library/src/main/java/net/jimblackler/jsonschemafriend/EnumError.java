@@ -7,6 +7,10 @@ public class EnumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  EnumError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Object not in enums: " + getSchema().getEnums();
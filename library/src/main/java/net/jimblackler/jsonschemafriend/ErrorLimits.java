@@ -0,0 +1,62 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * Bounds on the errors collected by a {@link Validator}, to keep the memory and time spent on badly
+ * invalid documents under control.
+ */
+public final class ErrorLimits {
+  /** No limits; every error is reported with the full detail of every anyOf and oneOf branch. */
+  public static final ErrorLimits UNLIMITED = new ErrorLimits(Integer.MAX_VALUE);
+
+  private final int maxErrors;
+  private final int maxBranchDepth;
+  private final boolean deduplicate;
+
+  /**
+   * @param maxErrors The number of errors after which validation stops. The errors reported are
+   *     then those found first.
+   */
+  public ErrorLimits(int maxErrors) {
+    this(maxErrors, Integer.MAX_VALUE, false);
+  }
+
+  /**
+   * @param maxErrors The number of errors after which validation stops. The errors reported are
+   *     then those found first.
+   * @param maxBranchDepth The number of nested levels of anyOf and oneOf for which the errors of
+   *     each branch are kept in {@link AnyOfError#getAllErrors()} and {@link
+   *     OneOfError#getAllErrors()}. Below that depth the errors have no branch details, and
+   *     branches can be abandoned at their first failure. Zero keeps no branch details at all.
+   * @param deduplicate If set, an error that repeats an earlier one for the same keyword of the
+   *     same schema, at a location differing only in array indices, is not reported again. Instead
+   *     the earlier error's {@link ValidationError#getOccurrences()} is incremented. Errors for
+   *     different details of a keyword, such as different missing properties, are kept apart.
+   */
+  public ErrorLimits(int maxErrors, int maxBranchDepth, boolean deduplicate) {
+    if (maxErrors < 1) {
+      throw new IllegalArgumentException("maxErrors must be at least 1");
+    }
+    if (maxBranchDepth < 0) {
+      throw new IllegalArgumentException("maxBranchDepth must not be negative");
+    }
+    this.maxErrors = maxErrors;
+    this.maxBranchDepth = maxBranchDepth;
+    this.deduplicate = deduplicate;
+  }
+
+  public int getMaxErrors() {
+    return maxErrors;
+  }
+
+  public int getMaxBranchDepth() {
+    return maxBranchDepth;
+  }
+
+  public boolean isDeduplicate() {
+    return deduplicate;
+  }
+
+  boolean isUnlimited() {
+    return maxErrors == Integer.MAX_VALUE && maxBranchDepth == Integer.MAX_VALUE && !deduplicate;
+  }
+}
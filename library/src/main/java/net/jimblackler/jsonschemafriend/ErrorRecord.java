@@ -0,0 +1,29 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact record of a validation failure, used internally by the validator. It captures only the
+ * references needed to describe the failure (the schema, the instance location and any keyword
+ * details), so that the ValidationError can be built only if the failure surfaces in the result.
+ *
+ * <p>Failures found when evaluating subschemas speculatively (if, not, contains, disallow, and the
+ * branches of anyOf and oneOf) are usually discarded, so this avoids the cost of building errors
+ * that will never be seen.
+ */
+interface ErrorRecord {
+  ValidationError build();
+
+  static List<List<ValidationError>> buildAll(List<List<ErrorRecord>> allRecords) {
+    List<List<ValidationError>> allErrors = new ArrayList<>(allRecords.size());
+    for (List<ErrorRecord> records : allRecords) {
+      List<ValidationError> errors = new ArrayList<>(records.size());
+      for (ErrorRecord record : records) {
+        errors.add(record.build());
+      }
+      allErrors.add(errors);
+    }
+    return allErrors;
+  }
+}
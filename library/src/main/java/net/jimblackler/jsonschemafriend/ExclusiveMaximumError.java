@@ -7,6 +7,10 @@ public class ExclusiveMaximumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  ExclusiveMaximumError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Greater than or equal to exclusive maximum: " + getSchema().getExclusiveMaximum();
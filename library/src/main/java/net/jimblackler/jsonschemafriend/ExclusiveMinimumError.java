@@ -7,6 +7,10 @@ public class ExclusiveMinimumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  ExclusiveMinimumError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Less than or equal to exclusive minimum: " + getSchema().getExclusiveMinimum();
@@ -7,6 +7,10 @@ public class FalseSchemaError extends ValidationError {
     super(uri, document, schema);
   }
 
+  FalseSchemaError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "False";
@@ -10,6 +10,11 @@ public class FormatError extends ValidationError {
     this.reason = reason;
   }
 
+  FormatError(InstancePath path, Object object, Schema schema, String reason) {
+    super(path, object, schema);
+    this.reason = reason;
+  }
+
   @Override
   public String getMessage() {
     return "Not compliant with format: " + getSchema().getFormat() + ". Reason: " + reason;
@@ -0,0 +1,123 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * The location of an instance being validated, relative to the base document. Paths are built as
+ * a chain of segments during validation and rendered to a URI only when requested, which is
+ * usually only when an error is reported.
+ */
+final class InstancePath {
+  private final InstancePath parent;
+  private final String property;
+  private final int index;
+  // If set, the path refers to the name of the property rather than its value.
+  private final boolean propertyName;
+  // The document the path is in, held by the root only.
+  private final Object document;
+  private volatile URI uri;
+
+  private InstancePath(
+      InstancePath parent, String property, int index, boolean propertyName, Object document) {
+    this.parent = parent;
+    this.property = property;
+    this.index = index;
+    this.propertyName = propertyName;
+    this.document = document;
+  }
+
+  static InstancePath root(URI uri) {
+    return root(uri, null);
+  }
+
+  /** Returns the root path of a document, which errors found in the document can return. */
+  static InstancePath root(URI uri, Object document) {
+    InstancePath path = new InstancePath(null, null, -1, false, document);
+    path.uri = uri;
+    return path;
+  }
+
+  InstancePath append(String property) {
+    return new InstancePath(this, property, -1, false, null);
+  }
+
+  InstancePath append(int index) {
+    return new InstancePath(this, null, index, false, null);
+  }
+
+  /**
+   * Returns a path for the name of a property, rather than its value.
+   *
+   * <p>The property name itself cannot have a path using the current version of JSON Pointers.
+   * Relative JSON Pointers does support property names; but the standard states these pointers
+   * are not suitable for use in URIs. As a workaround we use the query part of the URL to carry
+   * the property name.
+   */
+  InstancePath propertyName(String property) {
+    return new InstancePath(this, property, -1, true, null);
+  }
+
+  /** Returns the document the path is in, or null if it is not known. */
+  Object getDocument() {
+    InstancePath path = this;
+    while (path.parent != null) {
+      path = path.parent;
+    }
+    return path.document;
+  }
+
+  URI toUri() {
+    URI result = uri;
+    if (result == null) {
+      URI parentUri = parent.toUri();
+      if (propertyName) {
+        try {
+          result =
+              new URI(
+                  parentUri.getScheme(),
+                  parentUri.getAuthority(),
+                  parentUri.getPath(),
+                  property,
+                  parentUri.getRawFragment());
+        } catch (URISyntaxException e) {
+          throw new IllegalStateException(e);
+        }
+      } else {
+        result = PathUtils.append(parentUri, property == null ? String.valueOf(index) : property);
+      }
+      uri = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns a key for the path in which all array indices are replaced by a wildcard, so that the
+   * paths of the same property in different elements of an array have the same pattern.
+   */
+  String toPattern() {
+    StringBuilder builder = new StringBuilder();
+    appendPattern(builder);
+    return builder.toString();
+  }
+
+  private void appendPattern(StringBuilder builder) {
+    if (parent == null) {
+      builder.append(uri);
+      return;
+    }
+    parent.appendPattern(builder);
+    if (property == null) {
+      builder.append("[]");
+    } else {
+      builder
+          .append(propertyName ? '?' : '/')
+          .append(property.replace("~", "~0").replace("/", "~1"));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return toUri().toString();
+  }
+}
@@ -0,0 +1,74 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/** Reads Jackson JsonNode trees. */
+class JsonNodeAdapter implements DocumentAdapter {
+  static final JsonNodeAdapter INSTANCE = new JsonNodeAdapter();
+
+  @Override
+  public boolean handles(Object node) {
+    return node instanceof JsonNode;
+  }
+
+  @Override
+  public NodeType getType(Object node) {
+    JsonNode jsonNode = (JsonNode) node;
+    switch (jsonNode.getNodeType()) {
+      case OBJECT:
+        return NodeType.OBJECT;
+      case ARRAY:
+        return NodeType.ARRAY;
+      case NUMBER:
+        return NodeType.NUMBER;
+      case BOOLEAN:
+        return NodeType.BOOLEAN;
+      case NULL:
+      case MISSING:
+        return NodeType.NULL;
+      default:
+        // Strings, and binary and POJO nodes, which serialize as strings.
+        return NodeType.STRING;
+    }
+  }
+
+  @Override
+  public Iterable<String> getPropertyNames(Object node) {
+    return ((JsonNode) node)::fieldNames;
+  }
+
+  @Override
+  public int size(Object node) {
+    return ((JsonNode) node).size();
+  }
+
+  @Override
+  public boolean hasProperty(Object node, String name) {
+    return ((JsonNode) node).has(name);
+  }
+
+  @Override
+  public Object getProperty(Object node, String name) {
+    return ((JsonNode) node).get(name);
+  }
+
+  @Override
+  public Object getItem(Object node, int index) {
+    return ((JsonNode) node).get(index);
+  }
+
+  @Override
+  public String getString(Object node) {
+    return ((JsonNode) node).asText();
+  }
+
+  @Override
+  public Number getNumber(Object node) {
+    return ((JsonNode) node).numberValue();
+  }
+
+  @Override
+  public boolean getBoolean(Object node) {
+    return ((JsonNode) node).booleanValue();
+  }
+}
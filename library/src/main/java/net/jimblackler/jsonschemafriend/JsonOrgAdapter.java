@@ -0,0 +1,75 @@
+package net.jimblackler.jsonschemafriend;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Reads org.json trees of JSONObject and JSONArray. */
+class JsonOrgAdapter implements DocumentAdapter {
+  static final JsonOrgAdapter INSTANCE = new JsonOrgAdapter();
+
+  @Override
+  public boolean handles(Object node) {
+    return node instanceof JSONObject || node instanceof JSONArray;
+  }
+
+  @Override
+  public NodeType getType(Object node) {
+    if (node instanceof JSONObject) {
+      return NodeType.OBJECT;
+    }
+    if (node instanceof JSONArray) {
+      return NodeType.ARRAY;
+    }
+    if (node instanceof Number) {
+      return NodeType.NUMBER;
+    }
+    if (node instanceof Boolean) {
+      return NodeType.BOOLEAN;
+    }
+    if (node == null || node == JSONObject.NULL) {
+      return NodeType.NULL;
+    }
+    // Strings, and other values that org.json writes as strings.
+    return NodeType.STRING;
+  }
+
+  @Override
+  public Iterable<String> getPropertyNames(Object node) {
+    return ((JSONObject) node).keySet();
+  }
+
+  @Override
+  public int size(Object node) {
+    return node instanceof JSONObject ? ((JSONObject) node).length() : ((JSONArray) node).length();
+  }
+
+  @Override
+  public boolean hasProperty(Object node, String name) {
+    return ((JSONObject) node).has(name);
+  }
+
+  @Override
+  public Object getProperty(Object node, String name) {
+    return ((JSONObject) node).opt(name);
+  }
+
+  @Override
+  public Object getItem(Object node, int index) {
+    return ((JSONArray) node).opt(index);
+  }
+
+  @Override
+  public String getString(Object node) {
+    return node.toString();
+  }
+
+  @Override
+  public Number getNumber(Object node) {
+    return (Number) node;
+  }
+
+  @Override
+  public boolean getBoolean(Object node) {
+    return (Boolean) node;
+  }
+}
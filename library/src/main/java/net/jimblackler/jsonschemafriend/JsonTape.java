@@ -0,0 +1,499 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A compact index of a UTF-8 JSON document, built in one pass over the bytes. Each value is a node
+ * on a tape that records its kind and byte offsets, and objects and arrays record where their
+ * contents end, so that they can be stepped over.
+ *
+ * <p>The document is presented as Map and List views over the tape, so it can be evaluated by the
+ * Validator like any other document. Strings and numbers are only decoded when a keyword reads
+ * them, and no collections are built for objects and arrays. Values can be replaced in the views,
+ * as the Validator does when it transforms a document, but properties and items cannot be added or
+ * removed.
+ */
+final class JsonTape {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final byte OBJECT = 0;
+  private static final byte ARRAY = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte FLOAT = 4;
+  private static final byte TRUE = 5;
+  private static final byte FALSE = 6;
+  private static final byte NULL = 7;
+  // Objects with more properties than this have a hash index built on their first lookup.
+  private static final int MAX_LINEAR_LOOKUP = 8;
+  private static final Object NOT_DECODED = new Object();
+
+  private final byte[] json;
+  // The number types chosen by the features of the ObjectReader, as it would choose them.
+  private final boolean bigDecimalFloats;
+  private final boolean bigIntegerInts;
+  private final boolean longInts;
+  private final boolean failOnTrailingTokens;
+  private byte[] kinds;
+  // The byte offset of each scalar value; for objects and arrays, the number of properties or
+  // items.
+  private int[] values;
+  // The length in bytes of numbers; for objects and arrays, the node that follows the contents.
+  private int[] extents;
+  // Property names, stored against the node of the value they name.
+  private String[] names;
+  private int size;
+
+  private JsonTape(byte[] json, ObjectReader objectReader) {
+    this.json = json;
+    bigDecimalFloats =
+        objectReader != null
+            && objectReader.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    bigIntegerInts =
+        objectReader != null
+            && objectReader.isEnabled(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS);
+    longInts =
+        objectReader != null && objectReader.isEnabled(DeserializationFeature.USE_LONG_FOR_INTS);
+    failOnTrailingTokens =
+        objectReader != null
+            && objectReader.isEnabled(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    int capacity = json.length / 8 + 16;
+    kinds = new byte[capacity];
+    values = new int[capacity];
+    extents = new int[capacity];
+    names = new String[capacity];
+  }
+
+  /**
+   * Indexes a UTF-8 JSON document. The value is checked to be well-formed JSON.
+   *
+   * @return A Map or List view of the document, or its value if it is a scalar.
+   */
+  static Object parse(byte[] json) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+      return parse(json, parser, null);
+    }
+  }
+
+  /** Indexes a UTF-8 JSON document, read with the parser features of the given reader. */
+  static Object parse(byte[] json, ObjectReader objectReader) throws IOException {
+    try (JsonParser parser = objectReader.createParser(json)) {
+      return parse(json, parser, objectReader);
+    }
+  }
+
+  private static Object parse(byte[] json, JsonParser parser, ObjectReader objectReader)
+      throws IOException {
+    JsonTape tape = new JsonTape(json, objectReader);
+    tape.build(parser);
+    return tape.get(0);
+  }
+
+  private void build(JsonParser parser) throws IOException {
+    // The nodes of the objects and arrays currently open.
+    int[] open = new int[16];
+    int depth = 0;
+    String name = null;
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      throw new IOException("No content");
+    }
+    while (token != null) {
+      switch (token) {
+        case FIELD_NAME:
+          // Jackson already holds names as canonical strings, so they are kept rather than decoded
+          // again.
+          name = parser.getCurrentName();
+          break;
+        case END_OBJECT:
+        case END_ARRAY:
+          extents[open[--depth]] = size;
+          break;
+        default:
+          int node = size;
+          add(name, token, parser);
+          name = null;
+          if (depth > 0) {
+            values[open[depth - 1]]++;
+          }
+          if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            if (depth == open.length) {
+              open = Arrays.copyOf(open, depth * 2);
+            }
+            open[depth++] = node;
+          }
+      }
+      if (depth == 0) {
+        break;
+      }
+      token = parser.nextToken();
+    }
+    if (token == JsonToken.VALUE_STRING) {
+      // Other strings are checked as the parser steps over them, but a root string is not.
+      parser.finishToken();
+    }
+    if (failOnTrailingTokens && parser.nextToken() != null) {
+      throw new JsonParseException(
+          parser, "Trailing token (of type " + parser.currentToken() + ") found after value");
+    }
+  }
+
+  private void add(String name, JsonToken token, JsonParser parser) throws IOException {
+    if (size == kinds.length) {
+      int capacity = size * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      values = Arrays.copyOf(values, capacity);
+      extents = Arrays.copyOf(extents, capacity);
+      names = Arrays.copyOf(names, capacity);
+    }
+    names[size] = name;
+    switch (token) {
+      case START_OBJECT:
+        kinds[size] = OBJECT;
+        break;
+      case START_ARRAY:
+        kinds[size] = ARRAY;
+        break;
+      case VALUE_STRING:
+        // The content is not read by the parser until the next token is requested.
+        kinds[size] = STRING;
+        values[size] = (int) parser.getTokenLocation().getByteOffset();
+        break;
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        kinds[size] = token == JsonToken.VALUE_NUMBER_INT ? INTEGER : FLOAT;
+        values[size] = (int) parser.getTokenLocation().getByteOffset();
+        extents[size] = parser.getTextLength();
+        break;
+      case VALUE_TRUE:
+        kinds[size] = TRUE;
+        break;
+      case VALUE_FALSE:
+        kinds[size] = FALSE;
+        break;
+      case VALUE_NULL:
+        kinds[size] = NULL;
+        break;
+      default:
+        throw new IOException("Unexpected token " + token);
+    }
+    size++;
+  }
+
+  /** Returns the node that follows the given node and its contents. */
+  private int skip(int node) {
+    byte kind = kinds[node];
+    return kind == OBJECT || kind == ARRAY ? extents[node] : node + 1;
+  }
+
+  private Object get(int node) {
+    switch (kinds[node]) {
+      case OBJECT:
+        return new ObjectView(node);
+      case ARRAY:
+        return new ArrayView(node);
+      case STRING:
+        return decodeString(values[node]);
+      case INTEGER:
+        return decodeInteger(values[node], extents[node]);
+      case FLOAT:
+        return decodeFloat(values[node], extents[node]);
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      default:
+        return null;
+    }
+  }
+
+  /** Decodes an integer to an Integer, Long or BigInteger, as the ObjectMapper would. */
+  private Number decodeInteger(int offset, int length) {
+    String text = new String(json, offset, length, StandardCharsets.US_ASCII);
+    if (bigIntegerInts) {
+      return new BigInteger(text);
+    }
+    if (length <= 18) {
+      long value = Long.parseLong(text);
+      if (!longInts && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+        return (int) value;
+      }
+      return value;
+    }
+    BigInteger value = new BigInteger(text);
+    return value.bitLength() < 64 ? (Number) value.longValue() : value;
+  }
+
+  /** Decodes a number with a fraction or exponent to a Double or BigDecimal. */
+  private Number decodeFloat(int offset, int length) {
+    String text = new String(json, offset, length, StandardCharsets.US_ASCII);
+    if (bigDecimalFloats) {
+      try {
+        return new BigDecimal(text);
+      } catch (NumberFormatException e) {
+        // NaN and the infinities, where the parser allows them, are only held as doubles.
+      }
+    }
+    return Double.parseDouble(text);
+  }
+
+  /** Decodes the string whose opening quote is at the given offset. */
+  private String decodeString(int offset) {
+    int start = offset + 1;
+    int position = start;
+    while (json[position] != '"') {
+      if (json[position] == '\\') {
+        return decodeEscapedString(start);
+      }
+      position++;
+    }
+    return new String(json, start, position - start, StandardCharsets.UTF_8);
+  }
+
+  private String decodeEscapedString(int start) {
+    StringBuilder builder = new StringBuilder();
+    int position = start;
+    int run = start;
+    while (json[position] != '"') {
+      if (json[position] != '\\') {
+        position++;
+        continue;
+      }
+      builder.append(new String(json, run, position - run, StandardCharsets.UTF_8));
+      byte escaped = json[position + 1];
+      position += 2;
+      switch (escaped) {
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'u':
+          builder.append(
+              (char)
+                  Integer.parseInt(
+                      new String(json, position, 4, StandardCharsets.US_ASCII), 16));
+          position += 4;
+          break;
+        default:
+          // Quote, backslash and solidus stand for themselves. Others were rejected by the parser.
+          builder.append((char) escaped);
+      }
+      run = position;
+    }
+    builder.append(new String(json, run, position - run, StandardCharsets.UTF_8));
+    return builder.toString();
+  }
+
+  private class ObjectView extends AbstractMap<String, Object> {
+    private final int node;
+    private int[] valueNodes;
+    private Object[] decoded;
+    private Map<String, Integer> index;
+
+    ObjectView(int node) {
+      this.node = node;
+    }
+
+    private int[] getValueNodes() {
+      if (valueNodes == null) {
+        int[] nodes = new int[values[node]];
+        int count = 0;
+        Map<String, Integer> positions = nodes.length > MAX_LINEAR_LOOKUP ? new HashMap<>() : null;
+        for (int child = node + 1; child != extents[node]; child = skip(child)) {
+          String name = names[child];
+          int idx =
+              positions == null
+                  ? linearIndexOf(nodes, count, name)
+                  : positions.getOrDefault(name, -1);
+          if (idx == -1) {
+            idx = count++;
+            if (positions != null) {
+              positions.put(name, idx);
+            }
+          }
+          // As with the ObjectMapper, a repeated property keeps its first position and takes the
+          // last value.
+          nodes[idx] = child;
+        }
+        valueNodes = count == nodes.length ? nodes : Arrays.copyOf(nodes, count);
+        index = positions;
+        decoded = new Object[count];
+        Arrays.fill(decoded, NOT_DECODED);
+      }
+      return valueNodes;
+    }
+
+    private int indexOf(Object key) {
+      int[] valueNodes = getValueNodes();
+      if (index != null) {
+        Integer idx = index.get(key);
+        return idx == null ? -1 : idx;
+      }
+      return linearIndexOf(valueNodes, valueNodes.length, key);
+    }
+
+    private int linearIndexOf(int[] nodes, int count, Object key) {
+      for (int idx = 0; idx != count; idx++) {
+        if (names[nodes[idx]].equals(key)) {
+          return idx;
+        }
+      }
+      return -1;
+    }
+
+    private Object getValue(int idx) {
+      Object value = decoded[idx];
+      if (value == NOT_DECODED) {
+        value = JsonTape.this.get(valueNodes[idx]);
+        decoded[idx] = value;
+      }
+      return value;
+    }
+
+    @Override
+    public int size() {
+      return getValueNodes().length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) != -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+      int idx = indexOf(key);
+      return idx == -1 ? null : getValue(idx);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      int idx = indexOf(key);
+      if (idx == -1) {
+        throw new UnsupportedOperationException("Properties cannot be added to the document");
+      }
+      Object old = getValue(idx);
+      decoded[idx] = value;
+      return old;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          int[] valueNodes = getValueNodes();
+          return new Iterator<Entry<String, Object>>() {
+            private int idx;
+
+            @Override
+            public boolean hasNext() {
+              return idx < valueNodes.length;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (idx == valueNodes.length) {
+                throw new NoSuchElementException();
+              }
+              int entryIdx = idx++;
+              return new SimpleEntry<String, Object>(names[valueNodes[entryIdx]], null) {
+                @Override
+                public Object getValue() {
+                  return ObjectView.this.getValue(entryIdx);
+                }
+
+                @Override
+                public Object setValue(Object value) {
+                  Object old = getValue();
+                  decoded[entryIdx] = value;
+                  return old;
+                }
+              };
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return ObjectView.this.size();
+        }
+      };
+    }
+  }
+
+  private class ArrayView extends AbstractList<Object> implements RandomAccess {
+    private final int node;
+    private int[] itemNodes;
+    private Object[] decoded;
+
+    ArrayView(int node) {
+      this.node = node;
+    }
+
+    private void index() {
+      if (itemNodes == null) {
+        itemNodes = new int[values[node]];
+        int child = node + 1;
+        for (int idx = 0; idx != itemNodes.length; idx++) {
+          itemNodes[idx] = child;
+          child = skip(child);
+        }
+        decoded = new Object[itemNodes.length];
+        Arrays.fill(decoded, NOT_DECODED);
+      }
+    }
+
+    @Override
+    public Object get(int idx) {
+      index();
+      Object value = decoded[idx];
+      if (value == NOT_DECODED) {
+        value = JsonTape.this.get(itemNodes[idx]);
+        decoded[idx] = value;
+      }
+      return value;
+    }
+
+    @Override
+    public Object set(int idx, Object value) {
+      Object old = get(idx);
+      decoded[idx] = value;
+      return old;
+    }
+
+    @Override
+    public int size() {
+      return values[node];
+    }
+  }
+}
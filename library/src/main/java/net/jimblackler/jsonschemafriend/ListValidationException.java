@@ -5,17 +5,25 @@ import java.util.stream.Collectors;
 
 public class ListValidationException extends ValidationException {
   private final Collection<ValidationError> errors;
+  private String message;
 
   public ListValidationException(Collection<ValidationError> errors) {
-    super(
-        "Validation errors: "
-            + errors.stream()
-                .map(Object::toString)
-                .collect(Collectors.joining(System.lineSeparator())));
     this.errors = errors;
   }
 
   public Collection<ValidationError> getErrors() {
     return errors;
   }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      message =
+          "Validation errors: "
+              + errors.stream()
+                  .map(Object::toString)
+                  .collect(Collectors.joining(System.lineSeparator()));
+    }
+    return message;
+  }
 }
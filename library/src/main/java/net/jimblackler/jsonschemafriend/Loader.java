@@ -3,6 +3,10 @@ package net.jimblackler.jsonschemafriend;
 import java.io.IOException;
 import java.net.URI;
 
+/**
+ * Loads the documents that schemas are read from. A SchemaStore fetches documents in parallel, so
+ * a loader can be called from several threads at once.
+ */
 public interface Loader {
   public String load(URI uri, boolean cacheSchema) throws IOException;
 }
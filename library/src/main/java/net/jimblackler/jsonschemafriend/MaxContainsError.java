@@ -7,6 +7,10 @@ public class MaxContainsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MaxContainsError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Too many elements in the array matched contains";
@@ -7,6 +7,10 @@ public class MaxItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MaxItemsError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Above max items: " + getSchema().getMaxItems();
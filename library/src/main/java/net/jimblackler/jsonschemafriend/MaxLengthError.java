@@ -7,6 +7,10 @@ public class MaxLengthError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MaxLengthError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Greater than maxLength: " + getSchema().getMaxLength();
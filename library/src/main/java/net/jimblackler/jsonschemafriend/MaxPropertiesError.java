@@ -7,6 +7,10 @@ public class MaxPropertiesError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MaxPropertiesError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Too many properties";
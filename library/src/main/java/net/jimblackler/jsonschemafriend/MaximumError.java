@@ -7,6 +7,10 @@ public class MaximumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MaximumError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Greater than maximum: "
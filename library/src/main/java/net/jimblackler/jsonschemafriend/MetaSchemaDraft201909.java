@@ -328,12 +328,13 @@ class MetaSchemaDraft201909 {
   static {
     List<Object> schemaObjects;
     try {
+      ObjectMapper objectMapper = new ObjectMapper();
       schemaObjects =
           Arrays.stream(SCHEMA_JSONS)
               .map(
                   j -> {
                     try {
-                      return new ObjectMapper().readValue(j, Object.class);
+                      return objectMapper.readValue(j, Object.class);
                     } catch (Throwable th) {
                       throw new RuntimeException(th);
                     }
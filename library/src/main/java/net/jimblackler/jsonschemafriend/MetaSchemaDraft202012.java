@@ -350,12 +350,13 @@ class MetaSchemaDraft202012 {
   static {
     List<Object> schemaObjects;
     try {
+      ObjectMapper objectMapper = new ObjectMapper();
       schemaObjects =
           Arrays.stream(SCHEMA_JSONS)
               .map(
                   j -> {
                     try {
-                      return new ObjectMapper().readValue(j, Object.class);
+                      return objectMapper.readValue(j, Object.class);
                     } catch (Throwable th) {
                       throw new RuntimeException(th);
                     }
@@ -7,6 +7,10 @@ public class MinContainsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MinContainsError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Too few elements in the array matched contains";
@@ -7,6 +7,10 @@ public class MinItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MinItemsError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Below min items: " + getSchema().getMinItems();
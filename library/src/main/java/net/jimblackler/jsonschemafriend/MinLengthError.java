@@ -7,6 +7,10 @@ public class MinLengthError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MinLengthError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Shorter than minLength: " + getSchema().getMinLength();
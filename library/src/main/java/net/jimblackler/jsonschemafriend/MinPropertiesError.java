@@ -7,6 +7,10 @@ public class MinPropertiesError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MinPropertiesError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Too few properties";
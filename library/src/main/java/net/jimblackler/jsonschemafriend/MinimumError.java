@@ -7,6 +7,10 @@ public class MinimumError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MinimumError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Less than minimum: "
@@ -10,6 +10,11 @@ public class MissingPropertyError extends ValidationError {
     this.property = property;
   }
 
+  MissingPropertyError(InstancePath path, Object object, String property, Schema schema) {
+    super(path, object, schema);
+    this.property = property;
+  }
+
   @Override
   public String getMessage() {
     return "Missing property " + property;
@@ -7,6 +7,10 @@ public class MultipleError extends ValidationError {
     super(uri, document, schema);
   }
 
+  MultipleError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Not a multiple of " + getSchema().getMultipleOf();
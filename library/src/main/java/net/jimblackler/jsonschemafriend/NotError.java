@@ -7,6 +7,10 @@ public class NotError extends ValidationError {
     super(uri, document, schema);
   }
 
+  NotError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Not condition passed";
@@ -20,6 +20,17 @@ public class OneOfError extends ValidationError {
     this.allErrors = Collections.unmodifiableList(allErrors);
   }
 
+  OneOfError(
+      InstancePath path,
+      Object object,
+      List<Schema> passed,
+      List<List<ValidationError>> allErrors,
+      Schema schema) {
+    super(path, object, schema);
+    this.passed = Collections.unmodifiableList(passed);
+    this.allErrors = Collections.unmodifiableList(allErrors);
+  }
+
   public List<List<ValidationError>> getAllErrors() {
     return allErrors;
   }
@@ -0,0 +1,14 @@
+package net.jimblackler.jsonschemafriend;
+
+/**
+ * The output formats defined by the JSON Schema specification. The verbose format, which has a unit
+ * for every subschema evaluated, is not supported.
+ */
+public enum OutputFormat {
+  /** Only whether the instance is valid. Validation stops at the first failure. */
+  FLAG,
+  /** A flat list of the errors. */
+  BASIC,
+  /** The errors, with the errors of anyOf and oneOf branches nested within them. */
+  DETAILED
+}
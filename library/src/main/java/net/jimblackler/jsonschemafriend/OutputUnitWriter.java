@@ -0,0 +1,53 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+/** Writes the output units of the JSON Schema output formats. */
+class OutputUnitWriter {
+  private final JsonGenerator generator;
+  private final OutputFormat outputFormat;
+
+  OutputUnitWriter(JsonGenerator generator, OutputFormat outputFormat) {
+    this.generator = generator;
+    this.outputFormat = outputFormat;
+  }
+
+  void writeLocations(Schema schema, URI uri) throws IOException {
+    generator.writeStringField("keywordLocation", schema.getUri().toString());
+    generator.writeStringField("absoluteKeywordLocation", schema.getResourceUri().toString());
+    String rawFragment = uri.getRawFragment();
+    generator.writeStringField("instanceLocation", "#" + (rawFragment == null ? "" : rawFragment));
+  }
+
+  void writeError(ValidationError validationError) throws IOException {
+    generator.writeStartObject();
+    generator.writeBooleanField("valid", false);
+    writeLocations(validationError.getSchema(), validationError.getUri());
+
+    List<List<ValidationError>> allErrors = null;
+    if (outputFormat != OutputFormat.BASIC) {
+      if (validationError instanceof AnyOfError) {
+        allErrors = ((AnyOfError) validationError).getAllErrors();
+      } else if (validationError instanceof OneOfError) {
+        allErrors = ((OneOfError) validationError).getAllErrors();
+      }
+    }
+
+    if (allErrors == null || allErrors.isEmpty()) {
+      generator.writeStringField("error", validationError.getMessage());
+    } else {
+      // The message of anyOf and oneOf errors repeats the branch errors, which are nested instead.
+      generator.writeArrayFieldStart("errors");
+      for (List<ValidationError> errors : allErrors) {
+        for (ValidationError error : errors) {
+          writeError(error);
+        }
+      }
+      generator.writeEndArray();
+    }
+    generator.writeEndObject();
+  }
+}
@@ -7,6 +7,10 @@ public class PatternError extends ValidationError {
     super(uri, document, schema);
   }
 
+  PatternError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Did not match pattern: " + getSchema().getPattern();
@@ -0,0 +1,41 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer that keeps only the start of what is written to it, and fails once it has enough, so
+ * that a serializer writing to it can be stopped early.
+ */
+class PreviewWriter extends Writer {
+  private final StringBuilder builder = new StringBuilder();
+  private final int maxLength;
+
+  PreviewWriter(int maxLength) {
+    this.maxLength = maxLength;
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    int remaining = maxLength - builder.length();
+    builder.append(cbuf, off, Math.min(len, remaining));
+    if (isFull()) {
+      throw new IOException("Preview complete");
+    }
+  }
+
+  boolean isFull() {
+    return builder.length() >= maxLength;
+  }
+
+  @Override
+  public void flush() {}
+
+  @Override
+  public void close() {}
+
+  @Override
+  public String toString() {
+    return builder.toString();
+  }
+}
@@ -0,0 +1,11 @@
+package net.jimblackler.jsonschemafriend;
+
+/** Receives the result of each document of a batch validated by {@link Validator#validateAll}. */
+@FunctionalInterface
+public interface ResultSink {
+  /**
+   * @param index The position of the document in the batch, from 0.
+   * @param result The document as transformed by validation, and its errors.
+   */
+  void accept(long index, ValidationResult result);
+}
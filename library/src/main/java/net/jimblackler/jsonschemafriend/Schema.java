@@ -1,13 +1,11 @@
 package net.jimblackler.jsonschemafriend;
 
-import static java.util.Collections.unmodifiableCollection;
-import static java.util.Collections.unmodifiableMap;
 import static net.jimblackler.jsonschemafriend.MetaSchemaDetector.detectMetaSchema;
 import static net.jimblackler.jsonschemafriend.PathUtils.append;
 import static net.jimblackler.jsonschemafriend.PathUtils.fixUnescaped;
 import static net.jimblackler.jsonschemafriend.PathUtils.resolve;
 import static net.jimblackler.jsonschemafriend.Utils.getOrDefault;
-import static net.jimblackler.jsonschemafriend.Utils.setOf;
+import static net.jimblackler.jsonschemafriend.Utils.immutable;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -66,30 +64,30 @@ public class Schema {
   // object checks
   private final Number maxProperties;
   private final Number minProperties;
-  private final Collection<String> requiredProperties = new HashSet<>();
+  private final Collection<String> requiredProperties;
   private final boolean required;
   private final Schema additionalProperties;
   private final Schema unevaluatedProperties;
-  private final Map<String, Schema> _properties = new LinkedHashMap<>();
-  private final Collection<String> patternPropertiesPatterns = new ArrayList<>();
-  private final Collection<Schema> patternPropertiesSchemas = new ArrayList<>();
-  private final Map<String, Collection<String>> dependentRequired = new HashMap<>();
-  private final Map<String, Schema> dependentSchemas = new HashMap<>();
+  private final Map<String, Schema> _properties;
+  private final Collection<String> patternPropertiesPatterns;
+  private final Collection<Schema> patternPropertiesSchemas;
+  private final Map<String, Collection<String>> dependentRequired;
+  private final Map<String, Schema> dependentSchemas;
   private final Schema propertyNames;
   // all types checks
   private final boolean hasConst;
   private final Object _const;
   private final List<Object> enums;
   private final Set<String> explicitTypes;
-  private final Collection<Schema> typesSchema = new HashSet<>();
-  private final Collection<String> disallow = new HashSet<>();
-  private final Collection<Schema> disallowSchemas = new HashSet<>();
+  private final Collection<Schema> typesSchema;
+  private final Collection<String> disallow;
+  private final Collection<Schema> disallowSchemas;
   private final Object defaultValue;
   // in-place applicators
   private final Schema _if;
   private final Schema _then;
   private final Schema _else;
-  private final Collection<Schema> allOf = new ArrayList<>();
+  private final Collection<Schema> allOf;
   private final Collection<Schema> anyOf;
   private final Collection<Schema> oneOf;
   private final Schema not;
@@ -99,16 +97,19 @@ public class Schema {
   private final Schema defaultDynamicRef;
   private final String dynamicAnchor;
   private final boolean recursiveAnchor;
-  private final Map<String, Schema> dynamicAnchorsInResource = new HashMap<>();
+  private final Map<String, Schema> dynamicAnchorsInResource;
   private final List<Object> examples;
   private final String title;
   private final String description;
 
-  private URI metaSchema;
+  // A schema is not changed once built, so that it can be shared by threads, except for these.
+  // The meta-schema is found when first needed, and the parent can be set by a later load that
+  // builds the enclosing schema.
+  private volatile URI metaSchema;
+  private volatile Schema parent;
 
   // Own
   private Map<URI, Schema> subSchemas = new LinkedHashMap<>();
-  private Schema parent;
 
   Schema(SchemaStore schemaStore, URI uri) throws GenerationException {
     this.uri = uri;
@@ -171,11 +172,12 @@ public class Schema {
     Object prefixItemsObject = jsonObject.get("prefixItems");
     URI prefixItemsPath = append(uri, "prefixItems");
     if (prefixItemsObject instanceof List) {
-      prefixItems = new ArrayList<>();
+      List<Schema> prefixItems = new ArrayList<>();
       Collection<Object> jsonArray = (Collection<Object>) prefixItemsObject;
       for (int idx = 0; idx != jsonArray.size(); idx++) {
         prefixItems.add(getChildSchema(schemaStore, append(prefixItemsPath, String.valueOf(idx))));
       }
+      this.prefixItems = immutable(prefixItems);
     } else {
       prefixItems = null;
     }
@@ -186,11 +188,12 @@ public class Schema {
     Object itemsObject = jsonObject.get("items");
     URI itemsPath = append(uri, "items");
     if (itemsObject instanceof List) {
-      itemsTuple = new ArrayList<>();
+      List<Schema> itemsTuple = new ArrayList<>();
       Collection<Object> jsonArray = (Collection<Object>) itemsObject;
       for (int idx = 0; idx != jsonArray.size(); idx++) {
         itemsTuple.add(getChildSchema(schemaStore, append(itemsPath, String.valueOf(idx))));
       }
+      this.itemsTuple = immutable(itemsTuple);
       _items = null;
     } else {
       itemsTuple = null;
@@ -208,6 +211,7 @@ public class Schema {
     maxProperties = (Number) jsonObject.get("maxProperties");
     minProperties = (Number) jsonObject.get("minProperties");
 
+    Collection<String> requiredProperties = new HashSet<>();
     Object requiredObject = jsonObject.get("required");
     if (requiredObject instanceof List) {
       for (Object req : (Iterable<Object>) requiredObject) {
@@ -237,6 +241,7 @@ public class Schema {
       }
     }
 
+    Map<String, Schema> _properties = new LinkedHashMap<>();
     Object propertiesObject = jsonObject.get("properties");
     if (propertiesObject instanceof Map) {
       Map<String, Object> properties = (Map<String, Object>) propertiesObject;
@@ -247,6 +252,8 @@ public class Schema {
       }
     }
 
+    Collection<String> patternPropertiesPatterns = new ArrayList<>();
+    Collection<Schema> patternPropertiesSchemas = new ArrayList<>();
     Object patternPropertiesObject = jsonObject.get("patternProperties");
     if (patternPropertiesObject instanceof Map) {
       Map<String, Object> patternProperties = (Map<String, Object>) patternPropertiesObject;
@@ -258,6 +265,8 @@ public class Schema {
       }
     }
 
+    Map<String, Collection<String>> dependentRequired = new HashMap<>();
+    Map<String, Schema> dependentSchemas = new HashMap<>();
     Map<String, Object> dependenciesJsonObject =
         (Map<String, Object>) jsonObject.get("dependencies");
     if (dependenciesJsonObject != null) {
@@ -319,14 +328,14 @@ public class Schema {
     if (enumArray == null) {
       enums = null;
     } else {
-      enums = new ArrayList<>();
-      enums.addAll(enumArray);
+      enums = immutable(new ArrayList<>(enumArray));
     }
 
+    Collection<Schema> typesSchema = new HashSet<>();
     Object typeObject = jsonObject.get("type");
     if (typeObject instanceof List) {
       URI typePointer = append(uri, "type");
-      explicitTypes = new HashSet<>();
+      Set<String> explicitTypes = new HashSet<>();
       List<Object> array = (List<Object>) typeObject;
       for (int idx = 0; idx != array.size(); idx++) {
         Object arrayEntryObject = array.get(idx);
@@ -336,8 +345,9 @@ public class Schema {
           explicitTypes.add((String) arrayEntryObject);
         }
       }
+      this.explicitTypes = immutable(explicitTypes);
     } else if (typeObject instanceof String) {
-      explicitTypes = setOf(typeObject.toString());
+      explicitTypes = Collections.singleton(typeObject.toString());
     } else {
       explicitTypes = null;
     }
@@ -346,6 +356,7 @@ public class Schema {
     _then = getChildSchema(schemaStore, jsonObject, uri, "then");
     _else = getChildSchema(schemaStore, jsonObject, uri, "else");
 
+    Collection<Schema> allOf = new ArrayList<>();
     Object allOfObject = jsonObject.get("allOf");
     if (allOfObject instanceof List) {
       Collection<Object> array = (Collection<Object>) allOfObject;
@@ -389,13 +400,13 @@ public class Schema {
     recursiveAnchor = getOrDefault(jsonObject, "$recursiveAnchor", false);
 
     URI schemaResource = UriUtils.withoutFragment(uri);
-    Set<String> dynamicAnchorsInResource =
-        schemaStore.getDynamicAnchorsForSchemaResource(schemaResource);
-    if (dynamicAnchorsInResource != null) {
-      for (String anchor : dynamicAnchorsInResource) {
+    Map<String, Schema> dynamicAnchorsInResource = new HashMap<>();
+    Set<String> dynamicAnchorNames = schemaStore.getDynamicAnchorsForSchemaResource(schemaResource);
+    if (dynamicAnchorNames != null) {
+      for (String anchor : dynamicAnchorNames) {
         URI uri1 = resolve(uri, URI.create("#" + anchor));
         Schema schema = getSubSchema(schemaStore, uri1);
-        this.dynamicAnchorsInResource.put(anchor, schema);
+        dynamicAnchorsInResource.put(anchor, schema);
       }
     }
 
@@ -418,32 +429,36 @@ public class Schema {
 
     Object anyOfObject = jsonObject.get("anyOf");
     if (anyOfObject instanceof List) {
-      anyOf = new ArrayList<>();
+      List<Schema> anyOf = new ArrayList<>();
       Collection<Object> array = (Collection<Object>) anyOfObject;
       URI arrayPath = append(uri, "anyOf");
       for (int idx = 0; idx != array.size(); idx++) {
         URI indexPointer = append(arrayPath, String.valueOf(idx));
         anyOf.add(getChildSchema(schemaStore, indexPointer));
       }
+      this.anyOf = immutable(anyOf);
     } else {
       anyOf = null;
     }
 
     Object oneOfObject = jsonObject.get("oneOf");
     if (oneOfObject instanceof List) {
-      oneOf = new ArrayList<>();
+      List<Schema> oneOf = new ArrayList<>();
       Collection<Object> array = (Collection<Object>) oneOfObject;
       URI arrayPath = append(uri, "oneOf");
       for (int idx = 0; idx != array.size(); idx++) {
         URI indexPointer = append(arrayPath, String.valueOf(idx));
         oneOf.add(getChildSchema(schemaStore, indexPointer));
       }
+      this.oneOf = immutable(oneOf);
     } else {
       oneOf = null;
     }
 
     not = getChildSchema(schemaStore, jsonObject, uri, "not");
 
+    Collection<String> disallow = new HashSet<>();
+    Collection<Schema> disallowSchemas = new HashSet<>();
     Object disallowObject = jsonObject.get("disallow");
     if (disallowObject instanceof String) {
       disallow.add(disallowObject.toString());
@@ -465,6 +480,19 @@ public class Schema {
     title = (String) jsonObject.get("title");
     description = (String) jsonObject.get("description");
     examples = (List<Object>) jsonObject.get("examples");
+
+    this.requiredProperties = immutable(requiredProperties);
+    this._properties = immutable(_properties);
+    this.patternPropertiesPatterns = immutable(patternPropertiesPatterns);
+    this.patternPropertiesSchemas = immutable(patternPropertiesSchemas);
+    this.dependentRequired = immutable(dependentRequired);
+    this.dependentSchemas = immutable(dependentSchemas);
+    this.typesSchema = immutable(typesSchema);
+    this.allOf = immutable(allOf);
+    this.dynamicAnchorsInResource = immutable(dynamicAnchorsInResource);
+    this.disallow = immutable(disallow);
+    this.disallowSchemas = immutable(disallowSchemas);
+    subSchemas = immutable(subSchemas);
   }
 
   private Schema getChildSchema(
@@ -528,6 +556,11 @@ public class Schema {
     return uri;
   }
 
+  /** The object of the document that this schema was loaded from. */
+  Object getBaseObject() {
+    return baseObject;
+  }
+
   public Object getResourceUri() {
     return resourceUri;
   }
@@ -587,7 +620,7 @@ public class Schema {
   }
 
   public List<Schema> getPrefixItems() {
-    return prefixItems == null ? null : Collections.unmodifiableList(prefixItems);
+    return prefixItems;
   }
 
   public Schema getAdditionalItems() {
@@ -603,7 +636,7 @@ public class Schema {
   }
 
   public List<Schema> getItemsTuple() {
-    return itemsTuple == null ? null : Collections.unmodifiableList(itemsTuple);
+    return itemsTuple;
   }
 
   public Number getMaxItems() {
@@ -639,7 +672,7 @@ public class Schema {
   }
 
   public Collection<String> getRequiredProperties() {
-    return unmodifiableCollection(requiredProperties);
+    return requiredProperties;
   }
 
   public boolean isRequired() {
@@ -655,23 +688,23 @@ public class Schema {
   }
 
   public Map<String, Schema> getProperties() {
-    return unmodifiableMap(_properties);
+    return _properties;
   }
 
   public Collection<String> getPatternPropertiesPatterns() {
-    return unmodifiableCollection(patternPropertiesPatterns);
+    return patternPropertiesPatterns;
   }
 
   public Collection<Schema> getPatternPropertiesSchema() {
-    return unmodifiableCollection(patternPropertiesSchemas);
+    return patternPropertiesSchemas;
   }
 
   public Map<String, Collection<String>> getDependentRequired() {
-    return unmodifiableMap(dependentRequired);
+    return dependentRequired;
   }
 
   public Map<String, Schema> getDependentSchemas() {
-    return unmodifiableMap(dependentSchemas);
+    return dependentSchemas;
   }
 
   public Schema getPropertyNames() {
@@ -687,18 +720,15 @@ public class Schema {
   }
 
   public List<Object> getEnums() {
-    return enums == null ? null : Collections.unmodifiableList(enums);
+    return enums;
   }
 
   public Collection<String> getExplicitTypes() {
-    if (explicitTypes == null) {
-      return null;
-    }
-    return Collections.unmodifiableSet(explicitTypes);
+    return explicitTypes;
   }
 
   public Collection<Schema> getTypesSchema() {
-    return unmodifiableCollection(typesSchema);
+    return typesSchema;
   }
 
   public Schema getIf() {
@@ -714,15 +744,15 @@ public class Schema {
   }
 
   public Collection<Schema> getAllOf() {
-    return unmodifiableCollection(allOf);
+    return allOf;
   }
 
   public Collection<Schema> getAnyOf() {
-    return anyOf == null ? null : unmodifiableCollection(anyOf);
+    return anyOf;
   }
 
   public Collection<Schema> getOneOf() {
-    return oneOf == null ? null : unmodifiableCollection(oneOf);
+    return oneOf;
   }
 
   public Schema getNot() {
@@ -742,7 +772,7 @@ public class Schema {
   }
 
   public Map<String, Schema> getDynamicAnchorsInResource() {
-    return unmodifiableMap(dynamicAnchorsInResource);
+    return dynamicAnchorsInResource;
   }
 
   public URI getDynamicRefURI() {
@@ -758,11 +788,11 @@ public class Schema {
   }
 
   public Collection<String> getDisallow() {
-    return unmodifiableCollection(disallow);
+    return disallow;
   }
 
   public Collection<Schema> getDisallowSchemas() {
-    return unmodifiableCollection(disallowSchemas);
+    return disallowSchemas;
   }
 
   public Object getDefault() {
@@ -813,7 +843,7 @@ public class Schema {
   }
 
   public Map<URI, Schema> getSubSchemas() {
-    return unmodifiableMap(subSchemas);
+    return subSchemas;
   }
 
   public void validateExamples(Validator validator, Consumer<ValidationError> errorConsumer) {
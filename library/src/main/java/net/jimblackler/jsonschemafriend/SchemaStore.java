@@ -10,18 +10,26 @@ import static net.jimblackler.jsonschemafriend.PathUtils.resolve;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import org.jsoup.Jsoup;
@@ -29,9 +37,34 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+/**
+ * Loads schemas and the documents they refer to. A store can be shared by threads. A schema that
+ * has been loaded is looked up without locking. Only one thread loads a given URI at a time, and
+ * other threads that request it wait for that load. Loads of different URIs are built one at a
+ * time, because the schemas they build can refer to each other. The documents a load refers to are
+ * fetched before it is built, so loads do not wait for each other's fetches.
+ */
 public class SchemaStore {
   private static final Logger LOG = Logger.getLogger(SchemaStore.class.getName());
-
+  private static final ObjectReader DEFAULT_READER = new ObjectMapper().readerFor(Object.class);
+  private static final SchemaStore META_SCHEMAS =
+      new SchemaStore(
+          null,
+          false,
+          (uri, cacheSchema) -> {
+            throw new IOException(uri + " is not a bundled meta-schema");
+          },
+          DEFAULT_READER,
+          true,
+          null);
+
+  // Completed loads, by the URI they were requested with.
+  private final Map<URI, Schema> loaded = new ConcurrentHashMap<>();
+  private final Map<URI, CompletableFuture<Schema>> loading = new ConcurrentHashMap<>();
+  // Content fetched for loads that have not yet stored it, by document URI.
+  private final Map<URI, CompletableFuture<String>> fetched = new ConcurrentHashMap<>();
+  // Guards the maps below, which a load builds up as it goes.
+  private final ReentrantLock lock = new ReentrantLock();
   private final Map<URI, Object> canonicalUriToObject = new HashMap<>();
   private final Map<URI, Object> canonicalUriToBaseObject = new HashMap<>();
   private final Map<URI, URI> validUriToCanonicalUri = new HashMap<>();
@@ -41,6 +74,12 @@ public class SchemaStore {
   private final Collection<URI> mapped = new HashSet<>();
   private final UrlRewriter urlRewriter;
   private final Loader loader;
+  private final ObjectReader objectReader;
+  // Set for the store of bundled meta-schemas, which maps each draft the first time it is needed.
+  // Other stores load the bundled meta-schemas from it, so they are mapped and built once.
+  private final boolean metaSchemaLayer;
+  // The store this was forked from, if any.
+  private final SchemaStore parent;
   private int memorySchemaNumber;
   private boolean cacheSchema;
 
@@ -69,17 +108,114 @@ public class SchemaStore {
   }
 
   public SchemaStore(UrlRewriter urlRewriter, boolean cacheSchema, Loader loader) {
+    this(urlRewriter, cacheSchema, loader, DEFAULT_READER);
+  }
+
+  /**
+   * @param objectMapper The ObjectMapper used to read schemas from JSON text, such as those loaded
+   *     with {@link #loadSchemaJson(String)} or fetched to resolve references.
+   */
+  public SchemaStore(
+      UrlRewriter urlRewriter, boolean cacheSchema, Loader loader, ObjectMapper objectMapper) {
+    this(urlRewriter, cacheSchema, loader, objectMapper.readerFor(Object.class));
+  }
+
+  private SchemaStore(
+      UrlRewriter urlRewriter, boolean cacheSchema, Loader loader, ObjectReader objectReader) {
+    this(urlRewriter, cacheSchema, loader, objectReader, false, null);
+  }
+
+  private SchemaStore(
+      UrlRewriter urlRewriter,
+      boolean cacheSchema,
+      Loader loader,
+      ObjectReader objectReader,
+      boolean metaSchemaLayer,
+      SchemaStore parent) {
     this.urlRewriter = urlRewriter;
     this.cacheSchema = cacheSchema;
     this.loader = loader;
+    this.objectReader = objectReader;
+    this.metaSchemaLayer = metaSchemaLayer;
+    this.parent = parent;
+  }
+
+  /**
+   * Returns a store that shares the schemas of this one. Schemas and documents known to this store
+   * are loaded from it, without being copied, and anything else is loaded into the fork alone. A
+   * fork can be discarded when it is no longer needed, and this store is unaffected by it. It
+   * uses the same loader, URL rewriter and ObjectMapper as this store.
+   *
+   * <p>A schema of a document in this store that has not yet been built is built in this store, so
+   * that it is shared with later forks.
+   */
+  public SchemaStore fork() {
+    return new SchemaStore(urlRewriter, cacheSchema, loader, objectReader, false, this);
+  }
 
-    // pre-bundle supported drafts
-    store(DRAFT_3, MetaSchemaDraft03.SCHEMA);
-    store(DRAFT_4, MetaSchemaDraft04.SCHEMA);
-    store(DRAFT_6, MetaSchemaDraft06.SCHEMA);
-    store(DRAFT_7, MetaSchemaDraft07.SCHEMA);
-    store(DRAFT_2019_09, MetaSchemaDraft201909.SCHEMAS);
-    store(DRAFT_2020_12, MetaSchemaDraft202012.SCHEMAS);
+  /** Returns whether this store, or one it was forked from, has the given URI. */
+  private boolean knows(URI uri) {
+    if (loaded.containsKey(uri)) {
+      return true;
+    }
+    lock.lock();
+    try {
+      if (builtSchemas.containsKey(uri)
+          || validUriToCanonicalUri.containsKey(uri)
+          || canonicalUriToObject.containsKey(uri)
+          || mapped.contains(baseDocumentFromUri(uri))) {
+        return true;
+      }
+    } finally {
+      lock.unlock();
+    }
+    return parent != null && parent.knows(uri);
+  }
+
+  /**
+   * Returns the URI that a bundled draft is stored under, if the document is one of the bundled
+   * meta-schemas, or null.
+   */
+  private static URI getBundledDraft(URI documentUri) {
+    return BundledDocuments.DRAFTS.get(documentUri);
+  }
+
+  private static Object getBundledDocument(URI draft) {
+    if (draft.equals(DRAFT_3)) {
+      return MetaSchemaDraft03.SCHEMA;
+    }
+    if (draft.equals(DRAFT_4)) {
+      return MetaSchemaDraft04.SCHEMA;
+    }
+    if (draft.equals(DRAFT_6)) {
+      return MetaSchemaDraft06.SCHEMA;
+    }
+    if (draft.equals(DRAFT_7)) {
+      return MetaSchemaDraft07.SCHEMA;
+    }
+    if (draft.equals(DRAFT_2019_09)) {
+      return MetaSchemaDraft201909.SCHEMAS;
+    }
+    return MetaSchemaDraft202012.SCHEMAS;
+  }
+
+  /** The URIs of the bundled meta-schema documents, with the draft each is stored under. */
+  private static class BundledDocuments {
+    static final Map<URI, URI> DRAFTS = new HashMap<>();
+
+    static {
+      for (URI draft : new URI[] {DRAFT_3, DRAFT_4, DRAFT_6, DRAFT_7}) {
+        DRAFTS.put(baseDocumentFromUri(draft), draft);
+      }
+      // These drafts are split into several documents. Other documents published alongside them,
+      // such as the output schemas, are not bundled.
+      for (URI draft : new URI[] {DRAFT_2019_09, DRAFT_2020_12}) {
+        for (Object document : (List<Object>) getBundledDocument(draft)) {
+          Object id = ((Map<String, Object>) document).get("$id");
+          DRAFTS.put(baseDocumentFromUri(URI.create((String) id)), draft);
+        }
+      }
+    }
   }
 
   public Schema loadSchema(Object document) throws GenerationException {
@@ -87,10 +223,16 @@ public class SchemaStore {
   }
 
   public Schema loadSchema(Object document, Validator validator) throws GenerationException {
-    // Every document needs a unique, default canonical URI.
-    URI uri = URI.create(memorySchemaNumber == 0 ? "" : String.valueOf(memorySchemaNumber));
-    memorySchemaNumber++;
-    URI canonicalUri = store(uri, document);
+    URI canonicalUri;
+    lock.lock();
+    try {
+      // Every document needs a unique, default canonical URI.
+      URI uri = URI.create(memorySchemaNumber == 0 ? "" : String.valueOf(memorySchemaNumber));
+      memorySchemaNumber++;
+      canonicalUri = store(uri, document);
+    } finally {
+      lock.unlock();
+    }
     return loadSchema(canonicalUri, validator);
   }
 
@@ -128,7 +270,7 @@ public class SchemaStore {
 
   public Schema loadSchemaJson(String string) throws GenerationException {
     try {
-      return loadSchema(new ObjectMapper().readValue(string, Object.class));
+      return loadSchema((Object) objectReader.readValue(string));
     } catch (JsonProcessingException e) {
       throw new GenerationException(e);
     }
@@ -141,6 +283,179 @@ public class SchemaStore {
   public Schema loadSchema(URI uri, Validator validator, Consumer<ValidationError> errorConsumer)
       throws GenerationException {
     uri = normalize(uri);
+    Schema schema = loaded.get(uri);
+    if (schema != null) {
+      return schema;
+    }
+    if (lock.isHeldByCurrentThread()) {
+      // A reference followed by a load in progress on this thread.
+      return build(uri, validator, errorConsumer);
+    }
+    CompletableFuture<Schema> future = new CompletableFuture<>();
+    CompletableFuture<Schema> existing = loading.putIfAbsent(uri, future);
+    if (existing != null) {
+      return await(existing);
+    }
+    Collection<URI> prefetched = prefetch(uri);
+    try {
+      lock.lock();
+      try {
+        schema = build(uri, validator, errorConsumer);
+      } finally {
+        lock.unlock();
+      }
+      loaded.put(uri, schema);
+      future.complete(schema);
+      return schema;
+    } catch (GenerationException | RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(uri);
+      // Content that the build did not store, such as that of failed fetches, is not kept.
+      fetched.keySet().removeAll(prefetched);
+    }
+  }
+
+  /**
+   * Fetches the documents that the document of the URI refers to, and the documents that they
+   * refer to in turn, without holding the lock. The documents found in each round are fetched in
+   * parallel, on virtual threads where the runtime has them. References that are not found this
+   * way, such as those in a document that is not JSON, are fetched when the schema is built.
+   *
+   * @return The URIs of the documents fetched.
+   */
+  private Collection<URI> prefetch(URI uri) {
+    Collection<URI> prefetched = new HashSet<>();
+    Collection<URI> seen = new HashSet<>();
+    Collection<URI> pending = new ArrayList<>();
+    URI start = baseDocumentFromUri(uri);
+    Object startDocument;
+    lock.lock();
+    try {
+      startDocument = canonicalUriToObject.get(start);
+    } finally {
+      lock.unlock();
+    }
+    if (startDocument == null) {
+      pending.add(start);
+    } else {
+      seen.add(start);
+      findReferences(startDocument, start, pending);
+    }
+    ExecutorService executor = null;
+    try {
+      while (!pending.isEmpty()) {
+        Map<URI, CompletableFuture<String>> round = new LinkedHashMap<>();
+        for (URI documentUri : pending) {
+          if (!seen.add(documentUri)
+              || !documentUri.isAbsolute()
+              || getBundledDraft(documentUri) != null) {
+            continue;
+          }
+          CompletableFuture<String> future = new CompletableFuture<>();
+          CompletableFuture<String> existing = fetched.putIfAbsent(documentUri, future);
+          if (existing != null) {
+            round.put(documentUri, existing);
+            continue;
+          }
+          // A load removes its fetches only after it has stored them, so a document that is not
+          // known once the future is in place has not been stored.
+          if (knows(documentUri)) {
+            fetched.remove(documentUri);
+            future.completeExceptionally(new IllegalStateException(documentUri + " is known"));
+            continue;
+          }
+          prefetched.add(documentUri);
+          if (executor == null) {
+            executor = Threads.newBlockingTaskExecutor();
+          }
+          executor.execute(
+              () -> {
+                try {
+                  future.complete(load(documentUri));
+                } catch (IOException | RuntimeException | Error e) {
+                  // The failure is reported if the build needs the document.
+                  future.completeExceptionally(e);
+                }
+              });
+          round.put(documentUri, future);
+        }
+        pending = new ArrayList<>();
+        for (Map.Entry<URI, CompletableFuture<String>> entry : round.entrySet()) {
+          Object document;
+          try {
+            document = objectReader.readValue(entry.getValue().join());
+          } catch (CompletionException | JsonProcessingException e) {
+            continue;
+          }
+          findReferences(document, entry.getKey(), pending);
+        }
+      }
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+    return prefetched;
+  }
+
+  /** Adds the URIs of the documents that the $ref keywords in a document refer to. */
+  private static void findReferences(Object document, URI uri, Collection<URI> references) {
+    URI metaSchema = detectMetaSchema(document);
+    boolean preDraft6 = metaSchema.equals(DRAFT_3) || metaSchema.equals(DRAFT_4);
+    findReferences(document, uri, preDraft6, references);
+  }
+
+  /** Adds the URIs of the documents that the $ref keywords in a node refer to. */
+  private static void findReferences(
+      Object node, URI base, boolean preDraft6, Collection<URI> references) {
+    if (node instanceof List) {
+      for (Object item : (List<Object>) node) {
+        findReferences(item, base, preDraft6, references);
+      }
+      return;
+    }
+    if (!(node instanceof Map)) {
+      return;
+    }
+    Map<String, Object> map = (Map<String, Object>) node;
+    try {
+      Object id = map.get(preDraft6 ? "id" : "$id");
+      if (id instanceof String) {
+        base = resolve(base, URI.create((String) id));
+      }
+      Object ref = map.get("$ref");
+      if (ref instanceof String) {
+        references.add(
+            baseDocumentFromUri(normalize(resolve(base, URI.create(fixUnescaped((String) ref))))));
+      }
+    } catch (IllegalArgumentException e) {
+      // The build reports URIs that are not valid.
+    }
+    for (Object value : map.values()) {
+      findReferences(value, base, preDraft6, references);
+    }
+  }
+
+  /** Waits for a load started by another thread, and throws its exception if it failed. */
+  private static Schema await(CompletableFuture<Schema> future) throws GenerationException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof GenerationException) {
+        throw (GenerationException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  private Schema build(URI uri, Validator validator, Consumer<ValidationError> errorConsumer)
+      throws GenerationException {
     while (true) {
       if (builtSchemas.containsKey(uri)) {
         return builtSchemas.get(uri);
@@ -150,17 +465,35 @@ public class SchemaStore {
         uri = validUriToCanonicalUri.get(uri);
         continue;
       }
+      // Documents loaded without a URI are numbered by each store, so only absolute URIs are
+      // shared with the store this was forked from.
+      if (parent != null
+          && uri.isAbsolute()
+          && !canonicalUriToObject.containsKey(uri)
+          && parent.knows(uri)) {
+        return parent.loadSchema(uri, validator, errorConsumer);
+      }
       if (!canonicalUriToObject.containsKey(uri) && uri.isAbsolute()) {
         // We don't know this canonical URL, so we treat it as a resource URL and try to fetch
         // it.
         URI documentUri = baseDocumentFromUri(uri);
+        URI draft = getBundledDraft(documentUri);
+        if (draft != null) {
+          if (!metaSchemaLayer) {
+            return META_SCHEMAS.loadSchema(uri, validator, errorConsumer);
+          }
+          if (!mapped.contains(draft)) {
+            store(draft, getBundledDocument(draft));
+            continue;
+          }
+        }
         LOG.fine("Loading: " + documentUri + " to resolve: " + uri);
 
         try {
           if (!mapped.contains(documentUri)) {
             String content = getContent(documentUri);
             try {
-              store(documentUri, new ObjectMapper().readValue(content, Object.class));
+              store(documentUri, (Object) objectReader.readValue(content));
             } catch (JsonProcessingException e) {
               // This is a special method designed to handle the JavaScript-based redirection (not
               // http) on the web page at http://json-schema.org/schema.
@@ -240,6 +573,22 @@ public class SchemaStore {
   }
 
   private String getContent(URI documentUri) throws IOException {
+    CompletableFuture<String> future = fetched.get(documentUri);
+    if (future == null) {
+      return load(documentUri);
+    }
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw (RuntimeException) cause;
+    }
+  }
+
+  private String load(URI documentUri) throws IOException {
     if (urlRewriter == null) {
       return loader.load(documentUri, cacheSchema);
     }
@@ -247,16 +596,26 @@ public class SchemaStore {
   }
 
   public void register(URI path, Schema schema) throws GenerationException {
-    if (builtSchemas.put(path, schema) != null) {
-      throw new GenerationException(path + " already registered");
+    lock.lock();
+    try {
+      if (builtSchemas.put(path, schema) != null) {
+        throw new GenerationException(path + " already registered");
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   public URI store(URI uri, Object document) {
-    if (!mapped.add(uri)) {
-      throw new IllegalStateException("Double mapped");
+    lock.lock();
+    try {
+      if (!mapped.add(uri)) {
+        throw new IllegalStateException("Double mapped");
+      }
+      return map(document, document, uri, uri, detectMetaSchema(document), true, Keywords.SCHEMA);
+    } finally {
+      lock.unlock();
     }
-    return map(document, document, uri, uri, detectMetaSchema(document), true, Keywords.SCHEMA);
   }
 
   URI map(
@@ -438,24 +797,44 @@ public class SchemaStore {
   }
 
   Object getObject(URI canonicalUri) {
-    if (validUriToCanonicalUri.containsKey(canonicalUri)) {
-      throw new IllegalStateException("getObject(): non-canonical URL received");
-    }
-    if (canonicalUriToObject.containsKey(canonicalUri)) {
-      return canonicalUriToObject.get(canonicalUri);
+    lock.lock();
+    try {
+      if (validUriToCanonicalUri.containsKey(canonicalUri)) {
+        throw new IllegalStateException("getObject(): non-canonical URL received");
+      }
+      if (canonicalUriToObject.containsKey(canonicalUri)) {
+        return canonicalUriToObject.get(canonicalUri);
+      }
+      return null;
+    } finally {
+      lock.unlock();
     }
-    return null;
   }
 
   public Object getBaseObject(URI uri) {
-    return canonicalUriToBaseObject.get(uri);
+    lock.lock();
+    try {
+      return canonicalUriToBaseObject.get(uri);
+    } finally {
+      lock.unlock();
+    }
   }
 
   public URI canonicalUriToResourceUri(URI uri) {
-    return canonicalUriToResourceUri.get(uri);
+    lock.lock();
+    try {
+      return canonicalUriToResourceUri.get(uri);
+    } finally {
+      lock.unlock();
+    }
   }
 
   public Set<String> getDynamicAnchorsForSchemaResource(URI uri) {
-    return dynamicAnchorsBySchemaResource.get(uri);
+    lock.lock();
+    try {
+      return dynamicAnchorsBySchemaResource.get(uri);
+    } finally {
+      lock.unlock();
+    }
   }
 }
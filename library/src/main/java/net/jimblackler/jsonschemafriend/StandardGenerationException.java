@@ -4,13 +4,21 @@ import java.util.Map;
 
 public class StandardGenerationException extends GenerationException {
   private final Map<String, Object> standardOutput;
+  private String message;
 
   public StandardGenerationException(Map<String, Object> standardOutput) {
-    super(standardOutput.toString());
     this.standardOutput = standardOutput;
   }
 
   public Map<String, Object> getStandardOutput() {
     return standardOutput;
   }
+
+  @Override
+  public String getMessage() {
+    if (message == null) {
+      message = standardOutput.toString();
+    }
+    return message;
+  }
 }
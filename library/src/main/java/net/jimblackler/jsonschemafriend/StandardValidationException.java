@@ -2,10 +2,14 @@ package net.jimblackler.jsonschemafriend;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import java.util.Map;
 
 public class StandardValidationException extends ValidationException {
+  private static final ObjectWriter OBJECT_WRITER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writer();
+
   private final Map<String, Object> standardOutput;
 
   public StandardValidationException(Map<String, Object> standardOutput) {
@@ -15,9 +19,7 @@ public class StandardValidationException extends ValidationException {
   @Override
   public String toString() {
     try {
-      return new ObjectMapper()
-          .enable(SerializationFeature.INDENT_OUTPUT)
-          .writeValueAsString(standardOutput);
+      return OBJECT_WRITER.writeValueAsString(standardOutput);
     } catch (JsonProcessingException e) {
       throw new IllegalStateException(e);
     }
@@ -0,0 +1,506 @@
+package net.jimblackler.jsonschemafriend;
+
+import static net.jimblackler.jsonschemafriend.Utils.setOf;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Validates JSON documents from a stream of tokens, without building the whole document in memory.
+ *
+ * <p>Objects and arrays are validated as they are read when the keywords of their schemas can be
+ * evaluated one property or item at a time. A subtree is only read into memory when one of its
+ * schemas needs the whole value at once (for example anyOf, oneOf, not, if, contains, uniqueItems,
+ * const, enum or the unevaluated keywords), and scalars are read one at a time. Those values are
+ * evaluated by the {@link Validator} this instance was created with, which also supplies the
+ * regular expression, format, error filter and error limit configuration.
+ *
+ * <p>Values that no schema can reject, such as those under true schemas or an empty
+ * additionalProperties schema, are skipped with {@link JsonParser#skipChildren()} rather than
+ * read. They are still checked to be well-formed JSON.
+ *
+ * <p>Unlike the Validator, no document is returned, and errors for objects and arrays that were
+ * not read into memory have a null {@link ValidationError#getObject()}. Errors may be reported in
+ * a different order to the Validator.
+ */
+public class StreamingValidator {
+  private static final Logger LOG = Logger.getLogger(StreamingValidator.class.getName());
+  // Keywords that have no effect on validation. Subtrees under schemas with only these keywords
+  // are skipped. Unknown keywords are not included, so schemas with extensions are read in full.
+  private static final Set<String> NON_CONSTRAINING_KEYWORDS =
+      new HashSet<>(
+          Arrays.asList(
+              "$schema",
+              "$id",
+              "id",
+              "$anchor",
+              "$comment",
+              "$defs",
+              "definitions",
+              "title",
+              "description",
+              "default",
+              "examples",
+              "readOnly",
+              "writeOnly",
+              "deprecated"));
+
+  private final Validator validator;
+  // Whether each schema is unconstrained, by identity, as schemas of different stores can share
+  // a URI. The map is replaced rather than modified, so that it is read without a lock.
+  private volatile Map<Schema, Boolean> unconstrained = new IdentityHashMap<>();
+
+  public StreamingValidator() {
+    this(new Validator());
+  }
+
+  public StreamingValidator(Validator validator) {
+    this.validator = validator;
+  }
+
+  /**
+   * Validates the value at the parser's current token, or its next token if it has none. On
+   * return the parser is positioned on the last token of the value.
+   */
+  public void validate(Schema schema, JsonParser parser, Consumer<ValidationError> errorConsumer)
+      throws IOException {
+    if (!parser.hasCurrentToken() && parser.nextToken() == null) {
+      throw new IOException("No content to validate");
+    }
+    try {
+      validator.withErrorLimits(
+          errorConsumer,
+          errorSink -> {
+            try {
+              evaluate(
+                  Collections.singletonList(schema),
+                  parser,
+                  InstancePath.root(URI.create("")),
+                  errorSink);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            return null;
+          },
+          null);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  public void validate(
+      Schema schema, InputStream inputStream, Consumer<ValidationError> errorConsumer)
+      throws IOException {
+    try (JsonParser parser = validator.getObjectReader().createParser(inputStream)) {
+      validate(schema, parser, errorConsumer);
+    }
+  }
+
+  public void validate(Schema schema, File file, Consumer<ValidationError> errorConsumer)
+      throws IOException {
+    try (JsonParser parser = validator.getObjectReader().createParser(file)) {
+      validate(schema, parser, errorConsumer);
+    }
+  }
+
+  public void validate(Schema schema, InputStream inputStream)
+      throws ValidationException, IOException {
+    Collection<ValidationError> errors = new ArrayList<>();
+    validate(schema, inputStream, errors::add);
+    if (!errors.isEmpty()) {
+      throw new ListValidationException(errors);
+    }
+  }
+
+  public void validate(Schema schema, File file) throws ValidationException, IOException {
+    Collection<ValidationError> errors = new ArrayList<>();
+    validate(schema, file, errors::add);
+    if (!errors.isEmpty()) {
+      throw new ListValidationException(errors);
+    }
+  }
+
+  /**
+   * Checks if the value at the parser's current token, or its next token if it has none, is
+   * valid. Reading stops at the first failure, so the parser may then be positioned anywhere
+   * within the value.
+   */
+  public boolean isValid(Schema schema, JsonParser parser) throws IOException {
+    if (!parser.hasCurrentToken() && parser.nextToken() == null) {
+      throw new IOException("No content to validate");
+    }
+    try {
+      evaluate(
+          Collections.singletonList(schema),
+          parser,
+          InstancePath.root(URI.create("")),
+          Validator.FAIL_FAST);
+      return true;
+    } catch (Validator.BranchFailed e) {
+      return false;
+    }
+  }
+
+  public boolean isValid(Schema schema, InputStream inputStream) throws IOException {
+    try (JsonParser parser = validator.getObjectReader().createParser(inputStream)) {
+      return isValid(schema, parser);
+    }
+  }
+
+  /** Evaluates the value at the parser's current token against all of the given schemas. */
+  private void evaluate(
+      List<Schema> schemas,
+      JsonParser parser,
+      InstancePath path,
+      Consumer<ErrorRecord> errorConsumer)
+      throws IOException {
+    if (isUnconstrained(schemas)) {
+      // The value cannot fail, so it is skipped. The parser still checks that it is well-formed.
+      parser.skipChildren();
+      return;
+    }
+
+    JsonToken token = parser.currentToken();
+    if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+      Object value = readScalar(parser);
+      for (Schema schema : schemas) {
+        validator.evaluate(schema, value, path, errorConsumer);
+      }
+      return;
+    }
+
+    List<Schema> applicators = getApplicators(schemas);
+    if (applicators == null) {
+      // At least one schema needs the whole value.
+      Object value = validator.getObjectReader().readValue(parser);
+      for (Schema schema : schemas) {
+        validator.evaluate(schema, value, path, errorConsumer);
+      }
+      return;
+    }
+
+    if (token == JsonToken.START_OBJECT) {
+      evaluateObject(applicators, parser, path, errorConsumer);
+    } else {
+      evaluateArray(applicators, parser, path, errorConsumer);
+    }
+  }
+
+  private void evaluateObject(
+      List<Schema> applicators,
+      JsonParser parser,
+      InstancePath path,
+      Consumer<ErrorRecord> errorConsumer)
+      throws IOException {
+    Consumer<ErrorRecord> error = validator.filter(errorConsumer);
+    boolean needsNames = false;
+    for (Schema schema : applicators) {
+      if (schema.isFalse()) {
+        error.accept(() -> new FalseSchemaError(path, null, schema));
+        continue;
+      }
+      validator.typeCheck(schema, null, path, setOf("object"), schema.getDisallow(), error);
+      needsNames |=
+          !schema.getRequiredProperties().isEmpty()
+              || !schema.getDependentRequired().isEmpty()
+              || schema.getProperties().values().stream().anyMatch(Schema::isRequired);
+    }
+
+    // Only the names are retained, for the keywords that check which properties are present.
+    Set<String> names = needsNames ? new HashSet<>() : null;
+    int count = 0;
+    while (parser.nextToken() != JsonToken.END_OBJECT) {
+      String property = parser.getCurrentName();
+      parser.nextToken();
+      count++;
+      if (names != null) {
+        names.add(property);
+      }
+      List<Schema> propertySchemas = new ArrayList<>();
+      for (Schema schema : applicators) {
+        if (schema.isFalse()) {
+          continue;
+        }
+        boolean matched = false;
+        Schema propertySchema = schema.getProperties().get(property);
+        if (propertySchema != null) {
+          propertySchemas.add(propertySchema);
+          matched = true;
+        }
+        Iterator<String> it0 = schema.getPatternPropertiesPatterns().iterator();
+        Iterator<Schema> it1 = schema.getPatternPropertiesSchema().iterator();
+        while (it0.hasNext()) {
+          String pattern = it0.next();
+          Schema patternSchema = it1.next();
+          try {
+            if (validator.getRegExPatternSupplier().newPattern(pattern).matches(property)) {
+              propertySchemas.add(patternSchema);
+              matched = true;
+            }
+          } catch (InvalidRegexException e) {
+            LOG.warning("Invalid regex: " + e.getMessage());
+          }
+        }
+        Schema additionalProperties = schema.getAdditionalProperties();
+        if (!matched && additionalProperties != null) {
+          propertySchemas.add(additionalProperties);
+        }
+        Schema propertyNames = schema.getPropertyNames();
+        if (propertyNames != null) {
+          validator.evaluate(
+              propertyNames, property, path.propertyName(property), errorConsumer);
+        }
+      }
+      evaluate(propertySchemas, parser, path.append(property), errorConsumer);
+    }
+
+    for (Schema schema : applicators) {
+      if (schema.isFalse()) {
+        continue;
+      }
+      Number maxProperties = schema.getMaxProperties();
+      if (maxProperties != null && count > maxProperties.intValue()) {
+        error.accept(() -> new MaxPropertiesError(path, null, schema));
+      }
+      Number minProperties = schema.getMinProperties();
+      if (minProperties != null && count < minProperties.intValue()) {
+        error.accept(() -> new MinPropertiesError(path, null, schema));
+      }
+      if (names == null) {
+        continue;
+      }
+      for (String property : schema.getRequiredProperties()) {
+        if (!names.contains(property)) {
+          error.accept(() -> new MissingPropertyError(path, null, property, schema));
+        }
+      }
+      for (Map.Entry<String, Schema> entry : schema.getProperties().entrySet()) {
+        String property = entry.getKey();
+        if (entry.getValue().isRequired() && !names.contains(property)) {
+          error.accept(() -> new MissingPropertyError(path, null, property, schema));
+        }
+      }
+      for (Map.Entry<String, Collection<String>> entry :
+          schema.getDependentRequired().entrySet()) {
+        String property = entry.getKey();
+        if (!names.contains(property)) {
+          continue;
+        }
+        for (String dependency : entry.getValue()) {
+          if (!names.contains(dependency)) {
+            error.accept(() -> new DependencyError(path, null, property, dependency, schema));
+          }
+        }
+      }
+    }
+  }
+
+  private void evaluateArray(
+      List<Schema> applicators,
+      JsonParser parser,
+      InstancePath path,
+      Consumer<ErrorRecord> errorConsumer)
+      throws IOException {
+    Consumer<ErrorRecord> error = validator.filter(errorConsumer);
+    for (Schema schema : applicators) {
+      if (schema.isFalse()) {
+        error.accept(() -> new FalseSchemaError(path, null, schema));
+        continue;
+      }
+      validator.typeCheck(schema, null, path, setOf("array"), schema.getDisallow(), error);
+    }
+
+    int idx = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      List<Schema> itemSchemas = new ArrayList<>();
+      for (Schema schema : applicators) {
+        if (schema.isFalse()) {
+          continue;
+        }
+        Schema items = schema.getItems();
+        List<Schema> prefixItems = schema.getPrefixItems();
+        if (prefixItems != null) {
+          if (idx < prefixItems.size()) {
+            itemSchemas.add(prefixItems.get(idx));
+          } else if (items != null) {
+            itemSchemas.add(items);
+          }
+          continue;
+        }
+        List<Schema> itemsTuple = schema.getItemsTuple();
+        if (itemsTuple != null) {
+          if (idx < itemsTuple.size()) {
+            itemSchemas.add(itemsTuple.get(idx));
+          } else if (schema.getAdditionalItems() != null) {
+            itemSchemas.add(schema.getAdditionalItems());
+          }
+        }
+        if (items != null) {
+          itemSchemas.add(items);
+        }
+      }
+      evaluate(itemSchemas, parser, path.append(idx), errorConsumer);
+      idx++;
+    }
+
+    int size = idx;
+    for (Schema schema : applicators) {
+      if (schema.isFalse()) {
+        continue;
+      }
+      Number maxItems = schema.getMaxItems();
+      if (maxItems != null && size > maxItems.intValue()) {
+        error.accept(() -> new MaxItemsError(path, null, schema));
+      }
+      Number minItems = schema.getMinItems();
+      if (minItems != null && size < minItems.intValue()) {
+        error.accept(() -> new MinItemsError(path, null, schema));
+      }
+    }
+  }
+
+  private boolean isUnconstrained(List<Schema> schemas) {
+    for (Schema schema : schemas) {
+      if (!isUnconstrained(schema)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if the schema cannot cause any value to fail, computing this once per schema. */
+  private boolean isUnconstrained(Schema schema) {
+    Boolean cached = unconstrained.get(schema);
+    if (cached != null) {
+      return cached;
+    }
+    boolean result = isUnconstrained(schema, new HashSet<>());
+    // Concurrent misses can replace each other's copies, which only means a schema is computed
+    // again.
+    Map<Schema, Boolean> copy = new IdentityHashMap<>(unconstrained);
+    copy.put(schema, result);
+    unconstrained = copy;
+    return result;
+  }
+
+  /** Returns true if the schema has only keywords that cannot cause any value to fail. */
+  private static boolean isUnconstrained(Schema schema, Set<Schema> visited) {
+    Object schemaObject = schema.getSchemaObject();
+    if (Boolean.TRUE.equals(schemaObject)) {
+      return true;
+    }
+    if (!(schemaObject instanceof Map)) {
+      return false;
+    }
+    for (Object key : ((Map<?, ?>) schemaObject).keySet()) {
+      if (NON_CONSTRAINING_KEYWORDS.contains(key)) {
+        continue;
+      }
+      if ("$ref".equals(key)
+          && schema.getRef() != null
+          && visited.add(schema)
+          && isUnconstrained(schema.getRef(), visited)) {
+        continue;
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the schemas that apply directly to an object or array, with references and allOf
+   * flattened, or null if any of them needs the whole value to be evaluated.
+   */
+  private static List<Schema> getApplicators(List<Schema> schemas) {
+    List<Schema> applicators = new ArrayList<>();
+    Set<Schema> visited = new HashSet<>();
+    for (Schema schema : schemas) {
+      if (!addApplicators(schema, applicators, visited)) {
+        return null;
+      }
+    }
+    return applicators;
+  }
+
+  private static boolean addApplicators(
+      Schema schema, List<Schema> applicators, Set<Schema> visited) {
+    if (!visited.add(schema)) {
+      return true;
+    }
+    if (!isStreamable(schema)) {
+      return false;
+    }
+    applicators.add(schema);
+    Schema ref = schema.getRef();
+    if (ref != null && !addApplicators(ref, applicators, visited)) {
+      return false;
+    }
+    for (Schema schema1 : schema.getAllOf()) {
+      if (!addApplicators(schema1, applicators, visited)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the schema's own keywords can be evaluated against an object or array one
+   * property or item at a time.
+   */
+  private static boolean isStreamable(Schema schema) {
+    return schema.getIf() == null
+        && schema.getAnyOf() == null
+        && schema.getOneOf() == null
+        && schema.getNot() == null
+        && schema.getDisallowSchemas().isEmpty()
+        && schema.getTypesSchema().isEmpty()
+        && schema.getContains() == null
+        && schema.getUnevaluatedItems() == null
+        && schema.getUnevaluatedProperties() == null
+        && !schema.isUniqueItems()
+        && !schema.hasConst()
+        && schema.getEnums() == null
+        && schema.getDependentSchemas().isEmpty()
+        // Dynamic scope is only tracked by the Validator.
+        && schema.getRecursiveRef() == null
+        && !schema.isRecursiveAnchor()
+        && schema.getDynamicRefURI() == null
+        && schema.getDynamicAnchorsInResource().isEmpty();
+  }
+
+  /**
+   * Reads a scalar as it would be read into a document by the Validator's ObjectMapper. Numbers are
+   * read by the ObjectMapper, as it may be configured to read them as BigDecimal or BigInteger.
+   */
+  private Object readScalar(JsonParser parser) throws IOException {
+    switch (parser.currentToken()) {
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        return validator.getObjectReader().readValue(parser);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates threads for work that blocks on I/O. On JDK 21 and later these are virtual threads, so
+ * that waiting on files, pipes and sockets does not hold platform threads; on earlier runtimes they
+ * are platform threads, as before. The library is compiled for Java 8, so virtual threads are found
+ * at run time.
+ */
+final class Threads {
+  private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreads();
+
+  private Threads() {}
+
+  private static MethodHandle findVirtualThreads() {
+    String version = System.getProperty("java.specification.version", "1.8");
+    if (version.startsWith("1.") || Integer.parseInt(version.split("\\.")[0]) < 21) {
+      // Virtual threads were a preview before JDK 21.
+      return null;
+    }
+    try {
+      return MethodHandles.publicLookup()
+          .findStatic(
+              Executors.class,
+              "newVirtualThreadPerTaskExecutor",
+              MethodType.methodType(ExecutorService.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  static boolean hasVirtualThreads() {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * Returns an executor that runs each task in a thread of its own, for tasks that spend most of
+   * their time blocked. Work that keeps a processor busy should use a fixed pool instead.
+   */
+  static ExecutorService newBlockingTaskExecutor() {
+    if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+      try {
+        return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return Executors.newCachedThreadPool();
+  }
+}
@@ -12,6 +12,12 @@ public class TypeDisallowedError extends ValidationError {
     this.disallowed = disallowed;
   }
 
+  TypeDisallowedError(
+      InstancePath path, Object object, Collection<String> disallowed, Schema schema) {
+    super(path, object, schema);
+    this.disallowed = disallowed;
+  }
+
   @Override
   public String getMessage() {
     return "Type disallowed: " + disallowed;
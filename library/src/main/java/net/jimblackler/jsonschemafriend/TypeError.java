@@ -21,6 +21,18 @@ public class TypeError extends ValidationError {
     foundTypes = unmodifiableCollection(found);
   }
 
+  TypeError(
+      InstancePath path,
+      Object object,
+      Collection<String> expected,
+      Collection<String> found,
+      Schema schema) {
+    super(path, object, schema);
+
+    expectedTypes = unmodifiableCollection(expected);
+    foundTypes = unmodifiableCollection(found);
+  }
+
   public Collection<String> getExpectedTypes() {
     return expectedTypes;
   }
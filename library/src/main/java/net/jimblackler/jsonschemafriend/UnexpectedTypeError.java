@@ -10,6 +10,11 @@ public class UnexpectedTypeError extends ValidationError {
     this.object = object;
   }
 
+  UnexpectedTypeError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+    this.object = object;
+  }
+
   @Override
   public String getMessage() {
     return "Unexpected Java type in the document: " + object.getClass().getSimpleName();
@@ -7,6 +7,10 @@ public class UniqueItemsError extends ValidationError {
     super(uri, document, schema);
   }
 
+  UniqueItemsError(InstancePath path, Object object, Schema schema) {
+    super(path, object, schema);
+  }
+
   @Override
   public String getMessage() {
     return "Items were not unique";
@@ -1,6 +1,10 @@
 package net.jimblackler.jsonschemafriend;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -15,4 +19,55 @@ class Utils {
   static <T> T getOrDefault(Map<String, Object> map, String key, T def) {
     return map.containsKey(key) ? (T) map.get(key) : def;
   }
+
+  /**
+   * Returns an unmodifiable form of a list that its owner will not change again. Empty and
+   * single-element lists are replaced by smaller forms.
+   */
+  static <T> List<T> immutable(List<T> list) {
+    switch (list.size()) {
+      case 0:
+        return Collections.emptyList();
+      case 1:
+        return Collections.singletonList(list.get(0));
+      default:
+        if (list instanceof ArrayList) {
+          ((ArrayList<T>) list).trimToSize();
+        }
+        return Collections.unmodifiableList(list);
+    }
+  }
+
+  static <T> Set<T> immutable(Set<T> set) {
+    switch (set.size()) {
+      case 0:
+        return Collections.emptySet();
+      case 1:
+        return Collections.singleton(set.iterator().next());
+      default:
+        return Collections.unmodifiableSet(set);
+    }
+  }
+
+  static <T> Collection<T> immutable(Collection<T> collection) {
+    if (collection instanceof List) {
+      return immutable((List<T>) collection);
+    }
+    if (collection instanceof Set) {
+      return immutable((Set<T>) collection);
+    }
+    return Collections.unmodifiableCollection(collection);
+  }
+
+  static <K, V> Map<K, V> immutable(Map<K, V> map) {
+    switch (map.size()) {
+      case 0:
+        return Collections.emptyMap();
+      case 1:
+        Map.Entry<K, V> entry = map.entrySet().iterator().next();
+        return Collections.singletonMap(entry.getKey(), entry.getValue());
+      default:
+        return Collections.unmodifiableMap(map);
+    }
+  }
 }
@@ -0,0 +1,244 @@
+package net.jimblackler.jsonschemafriend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A long-running validation server on the loopback interface, so that tools that validate many
+ * times do not each pay for JVM startup, the meta-schemas and the loading of their schema.
+ *
+ * <p>A request is a POST to /validate?schema=&lt;path of a schema file&gt; with newline-delimited
+ * JSON documents as its body. The response has status 200 if every document passed and 422 if
+ * any failed or could not be read, with a line for each of those in the error format of
+ * BatchValidator. The status is 400 if the schema could not be loaded, and 403 if the request
+ * has an Origin header, as requests made by web pages do.
+ *
+ * <p>Schemas are loaded once into a shared SchemaStore and kept. If a file of a loaded schema, or
+ * of any schema it refers to, has been modified since it was loaded, the schema is loaded again
+ * into a new SchemaStore. The documents of all requests are validated by one pool of worker
+ * threads.
+ */
+public class ValidationDaemon {
+  private final Validator validator;
+  private final int threads;
+  private final Map<String, LoadedSchema> schemas = new HashMap<>();
+  // Schemas can be loaded from the network, so the lock is not a monitor, which would pin the
+  // carrier of a virtual request thread.
+  private final ReentrantLock schemaLock = new ReentrantLock();
+  private SchemaStore schemaStore;
+  // The modification times of the files in schemaStore, when they were read.
+  private final Map<File, Long> storeModified = new HashMap<>();
+  private HttpServer server;
+  private ExecutorService workers;
+  private ExecutorService requestThreads;
+
+  public ValidationDaemon() {
+    this(new Validator(), Runtime.getRuntime().availableProcessors());
+  }
+
+  /** @param threads The number of worker threads that validate documents. */
+  public ValidationDaemon(Validator validator, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.validator = validator;
+    this.threads = threads;
+  }
+
+  /**
+   * Starts the server on the loopback interface.
+   *
+   * @param port The port to listen on, or 0 for any free port.
+   * @return The address that the server listens on.
+   */
+  public synchronized InetSocketAddress start(int port) throws IOException {
+    if (server != null) {
+      throw new IllegalStateException("The daemon has already started");
+    }
+    newSchemaStore();
+    workers = Executors.newFixedThreadPool(threads);
+    requestThreads = Threads.newBlockingTaskExecutor();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/validate", this::handle);
+    server.setExecutor(requestThreads);
+    server.start();
+    return server.getAddress();
+  }
+
+  /** Stops the server, after waiting up to a second for requests in progress. */
+  public synchronized void stop() {
+    if (server == null) {
+      return;
+    }
+    server.stop(1);
+    requestThreads.shutdownNow();
+    workers.shutdownNow();
+    server = null;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!exchange.getRequestMethod().equals("POST")) {
+        respond(exchange, 405, "Use POST\n");
+        return;
+      }
+      // Browsers send an Origin with every POST, so this refuses requests that a web page makes
+      // to the loopback interface.
+      if (exchange.getRequestHeaders().containsKey("Origin")) {
+        respond(exchange, 403, "Requests from web pages are not accepted\n");
+        return;
+      }
+      String schemaPath = getParameter(exchange.getRequestURI(), "schema");
+      if (schemaPath == null) {
+        respond(exchange, 400, "The schema parameter is required\n");
+        return;
+      }
+      BatchValidator batchValidator;
+      try {
+        batchValidator = getBatchValidator(schemaPath);
+      } catch (GenerationException e) {
+        respond(exchange, 400, e.getMessage() + "\n");
+        return;
+      }
+      ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+      BatchValidator.Summary summary =
+          batchValidator.validate(
+              new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+              new DiscardingOutputStream(),
+              errorOutput);
+      respond(
+          exchange, summary.getValid() == summary.getDocuments() ? 200 : 422, errorOutput);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static String getParameter(URI uri, String name) throws UnsupportedEncodingException {
+    String query = uri.getRawQuery();
+    if (query == null) {
+      return null;
+    }
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals != -1 && parameter.substring(0, equals).equals(name)) {
+        return URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+      }
+    }
+    return null;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(body.getBytes(StandardCharsets.UTF_8));
+    respond(exchange, status, bytes);
+  }
+
+  private static void respond(HttpExchange exchange, int status, ByteArrayOutputStream body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.size() == 0 ? -1 : body.size());
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      body.writeTo(responseBody);
+    }
+  }
+
+  /**
+   * Returns the batch validator of a schema file, loading the schema if it has not been loaded or
+   * any of its files have changed since.
+   */
+  private BatchValidator getBatchValidator(String schemaPath) throws GenerationException {
+    schemaLock.lock();
+    try {
+      return getBatchValidatorLocked(schemaPath);
+    } finally {
+      schemaLock.unlock();
+    }
+  }
+
+  private BatchValidator getBatchValidatorLocked(String schemaPath) throws GenerationException {
+    File file = new File(schemaPath).getAbsoluteFile();
+    LoadedSchema loaded = schemas.get(file.getPath());
+    if (loaded != null && !isModified(loaded.modified)) {
+      return loaded.batchValidator;
+    }
+    if (isModified(storeModified)) {
+      // A document in the store has changed, and a store cannot replace a document. This is
+      // checked for every schema loaded, as it may refer to a file that another schema loaded
+      // first. Schemas already loaded from the old store are unaffected.
+      newSchemaStore();
+    }
+    schemas.remove(file.getPath());
+    Schema schema;
+    try {
+      schema = schemaStore.loadSchema(file);
+    } catch (GenerationException | RuntimeException e) {
+      // The store may hold part of the schema.
+      newSchemaStore();
+      throw e;
+    }
+    loaded = new LoadedSchema(new BatchValidator(validator, schema, threads, threads * 4, workers));
+    for (String uri : DirectoryValidator.getDocuments(schema).keySet()) {
+      if (uri.startsWith("file:")) {
+        File document = new File(URI.create(uri));
+        // The time recorded when the store read the file, which may have been for another schema.
+        Long lastModified = storeModified.get(document);
+        if (lastModified == null) {
+          lastModified = document.lastModified();
+          storeModified.put(document, lastModified);
+        }
+        loaded.modified.put(document, lastModified);
+      }
+    }
+    schemas.put(file.getPath(), loaded);
+    return loaded.batchValidator;
+  }
+
+  private void newSchemaStore() {
+    schemaStore = new SchemaStore();
+    storeModified.clear();
+  }
+
+  /** Returns true if any of the files has been modified since the recorded time. */
+  private static boolean isModified(Map<File, Long> modified) {
+    for (Map.Entry<File, Long> entry : modified.entrySet()) {
+      if (entry.getKey().lastModified() != entry.getValue()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A loaded schema, and the modification times of the files it was loaded from. */
+  private static class LoadedSchema {
+    final BatchValidator batchValidator;
+    final Map<File, Long> modified = new HashMap<>();
+
+    LoadedSchema(BatchValidator batchValidator) {
+      this.batchValidator = batchValidator;
+    }
+  }
+
+  private static class DiscardingOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {}
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {}
+  }
+}
@@ -1,19 +1,21 @@
 package net.jimblackler.jsonschemafriend;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.net.URI;
 
 public abstract class ValidationError {
   private static final String ELLIPSES = "...";
-  private final URI uri;
+  // ObjectMapper is thread-safe once configured, so one instance serves every error.
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private final InstancePath path;
   private final Object document;
   private final Schema schema;
   private final Object object;
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private int occurrences = 1;
 
   protected ValidationError(URI uri, Object document, Schema schema) {
-    this.uri = uri;
+    this.path = InstancePath.root(uri);
     this.document = document;
     this.schema = schema;
     Object _object;
@@ -25,21 +27,45 @@ public abstract class ValidationError {
     object = _object;
   }
 
+  /**
+   * Constructor used by the validator. The path is rendered only when requested, and holds the
+   * document only if the validator retains documents.
+   */
+  ValidationError(InstancePath path, Object object, Schema schema) {
+    this.path = path;
+    this.document = null;
+    this.schema = schema;
+    this.object = object;
+  }
+
   @Override
   public String toString() {
+    URI uri = getUri();
     URI schemaPath = schema.getUri();
+    return (preview(object, 60)
+        + (uri.toString().isEmpty() ? " at root " : " at " + uri + " ")
+        + "failed "
+        + (schemaPath.toString().isEmpty() ? "" : "against " + schemaPath + " ")
+        + "with \""
+        + getMessage()
+        + "\"");
+  }
+
+  /**
+   * Serializes an object to JSON, truncated to the given length. Serialization stops soon after the
+   * limit is reached, so large objects are not serialized in full.
+   */
+  static String preview(Object object, int maxLength) {
+    // One more character than the limit shows whether truncation is required.
+    PreviewWriter writer = new PreviewWriter(maxLength + 1);
     try {
-      String str = objectMapper.writeValueAsString(object);
-      return (truncate(str, 60)
-          + (uri.toString().isEmpty() ? " at root " : " at " + uri + " ")
-          + "failed "
-          + (schemaPath.toString().isEmpty() ? "" : "against " + schemaPath + " ")
-          + "with \""
-          + getMessage()
-          + "\"");
-    } catch (JsonProcessingException e) {
-      throw new IllegalStateException(e);
+      OBJECT_MAPPER.writeValue(writer, object);
+    } catch (IOException e) {
+      if (!writer.isFull()) {
+        throw new IllegalStateException(e);
+      }
     }
+    return truncate(writer.toString(), maxLength);
   }
 
   public Object getObject() {
@@ -47,17 +73,43 @@ public abstract class ValidationError {
   }
 
   public URI getUri() {
-    return uri;
+    return path.toUri();
   }
 
+  InstancePath getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the document containing the object that failed validation. {@link #getObject()} and
+   * {@link #getUri()} give the failed object and its location without the document.
+   *
+   * @return The document, or null if it is not available. Errors reported by the Validator hold
+   *     the document only if it was configured with {@link Validator#retainingDocuments()}, and
+   *     errors reported by the StreamingValidator never do, as it does not build the document.
+   */
   public Object getDocument() {
-    return document;
+    return document == null ? path.getDocument() : document;
   }
 
   public Schema getSchema() {
     return schema;
   }
 
+  /**
+   * Returns the number of times this error occurred. This is always one unless the Validator was
+   * configured to deduplicate errors with {@link ErrorLimits}, in which case it includes the
+   * repeats of the error at other array indices. The count is only final once validation is
+   * complete.
+   */
+  public int getOccurrences() {
+    return occurrences;
+  }
+
+  void addOccurrence() {
+    occurrences++;
+  }
+
   public abstract String getMessage();
 
   public static String truncate(String str, int maxLength) {
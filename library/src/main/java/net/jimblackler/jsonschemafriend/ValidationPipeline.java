@@ -0,0 +1,259 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Validates a stream of documents with bounded parallelism, and passes each result to a consumer.
+ * At most the given number of documents are in progress at once: {@link #submit} waits for room,
+ * and {@link #trySubmit} declines, so a producer cannot get ahead of validation. Results are passed
+ * to the consumer one at a time, either in the order the documents were submitted or as each
+ * validation completes.
+ *
+ * <p>In order, a document that is slow to validate holds its place, and the results of the
+ * documents after it count against the parallelism until it completes, so memory stays bounded.
+ *
+ * <p>If a validation or the consumer throws an exception, no further results are passed on, and
+ * the exception is thrown by the next call to submit or close.
+ */
+public class ValidationPipeline implements AutoCloseable {
+  private final Validator validator;
+  private final Schema schema;
+  private final Executor executor;
+  private final boolean ordered;
+  private final Consumer<ValidationResult> resultConsumer;
+  private final Semaphore permits;
+  private final Map<Long, ValidationResult> completed = new HashMap<>();
+  // Results that can be passed on, in the order they are to be passed on.
+  private final Queue<ValidationResult> ready = new ArrayDeque<>();
+  // Not a monitor, which would pin the carrier of a virtual thread that waits in close.
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition allDelivered = lock.newCondition();
+  private long submitted;
+  private long released;
+  private long delivered;
+  // The thread that is passing results to the consumer, if any.
+  private Thread deliverer;
+  // Documents submitted by the consumer when there was no room, which hold no permit.
+  private long excess;
+  private RuntimeException failure;
+
+  /**
+   * @param executor The executor that validates documents.
+   * @param parallelism The number of documents that can be in progress at once.
+   * @param ordered Whether results are passed on in the order the documents were submitted.
+   * @param resultConsumer Receives each result. It is not called by more than one thread at once.
+   *     It can submit documents, which do not wait for room.
+   */
+  public ValidationPipeline(
+      Validator validator,
+      Schema schema,
+      Executor executor,
+      int parallelism,
+      boolean ordered,
+      Consumer<ValidationResult> resultConsumer) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be at least 1");
+    }
+    this.validator = validator;
+    this.schema = schema;
+    this.executor = executor;
+    this.ordered = ordered;
+    this.resultConsumer = resultConsumer;
+    permits = new Semaphore(parallelism);
+  }
+
+  /** Submits a document, waiting until there is room for it. */
+  public void submit(Object document) throws InterruptedException {
+    checkFailure();
+    if (!permits.tryAcquire() && !takeExcess()) {
+      permits.acquire();
+    }
+    start(document);
+  }
+
+  /**
+   * Lets the consumer submit a document when there is no room for it. The consumer cannot wait,
+   * as the room would be left by results that are waiting for the consumer.
+   */
+  private boolean takeExcess() {
+    lock.lock();
+    try {
+      if (deliverer != Thread.currentThread()) {
+        return false;
+      }
+      excess++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Submits a document if there is room for it.
+   *
+   * @return Whether the document was submitted.
+   */
+  public boolean trySubmit(Object document) {
+    checkFailure();
+    if (!permits.tryAcquire()) {
+      return false;
+    }
+    start(document);
+    return true;
+  }
+
+  private void start(Object document) {
+    long sequence;
+    lock.lock();
+    try {
+      sequence = submitted++;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      CompletableFuture.supplyAsync(() -> validator.validateForResult(schema, document), executor)
+          .whenComplete((result, throwable) -> complete(sequence, result, throwable));
+    } catch (RejectedExecutionException e) {
+      complete(sequence, null, e);
+    }
+  }
+
+  private void complete(long sequence, ValidationResult result, Throwable throwable) {
+    lock.lock();
+    try {
+      if (throwable != null && failure == null) {
+        Throwable cause =
+            throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        failure =
+            cause instanceof RuntimeException
+                ? (RuntimeException) cause
+                : new IllegalStateException(cause);
+      }
+      if (!ordered) {
+        release(result);
+      } else {
+        // A failed validation holds a null result, so that the results after it are not held up.
+        completed.put(sequence, result);
+        while (completed.containsKey(released)) {
+          release(completed.remove(released));
+        }
+      }
+      if (deliverer != null) {
+        // The thread that is delivering results will pass this one on too.
+        return;
+      }
+      deliverer = Thread.currentThread();
+    } finally {
+      lock.unlock();
+    }
+    deliver();
+  }
+
+  /** Makes a result ready to be passed on. Called with the lock held. */
+  private void release(ValidationResult result) {
+    released++;
+    if (result == null) {
+      returnPermit();
+      finished();
+    } else {
+      ready.add(result);
+    }
+  }
+
+  /** Returns the room a document held. Called with the lock held. */
+  private void returnPermit() {
+    if (excess > 0) {
+      excess--;
+    } else {
+      permits.release();
+    }
+  }
+
+  /** Records that a result has been passed on or dropped. Called with the lock held. */
+  private void finished() {
+    delivered++;
+    if (delivered == submitted) {
+      allDelivered.signalAll();
+    }
+  }
+
+  /**
+   * Passes on ready results until there are none left. Only one thread delivers at a time, and it
+   * calls the consumer without the lock held, so that the consumer can submit documents.
+   */
+  private void deliver() {
+    while (true) {
+      ValidationResult result;
+      boolean failed;
+      lock.lock();
+      try {
+        result = ready.poll();
+        if (result == null) {
+          deliverer = null;
+          return;
+        }
+        returnPermit();
+        failed = failure != null;
+      } finally {
+        lock.unlock();
+      }
+      RuntimeException exception = null;
+      if (!failed) {
+        try {
+          resultConsumer.accept(result);
+        } catch (RuntimeException e) {
+          exception = e;
+        }
+      }
+      lock.lock();
+      try {
+        if (exception != null && failure == null) {
+          failure = exception;
+        }
+        finished();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void checkFailure() {
+    lock.lock();
+    try {
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the result of every submitted document has been passed on.
+   *
+   * @throws RuntimeException The first exception thrown by a validation or the consumer, if any.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    lock.lock();
+    try {
+      while (delivered < submitted) {
+        allDelivered.await();
+      }
+    } finally {
+      lock.unlock();
+    }
+    checkFailure();
+  }
+}
@@ -0,0 +1,28 @@
+package net.jimblackler.jsonschemafriend;
+
+import java.util.Collections;
+import java.util.List;
+
+/** The outcome of validating a document: the document as transformed by validation, and errors. */
+public class ValidationResult {
+  private final Object document;
+  private final List<ValidationError> errors;
+
+  public ValidationResult(Object document, List<ValidationError> errors) {
+    this.document = document;
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  /** The document, with any values transformed by validation replaced. */
+  public Object getDocument() {
+    return document;
+  }
+
+  public List<ValidationError> getErrors() {
+    return errors;
+  }
+
+  public boolean isValid() {
+    return errors.isEmpty();
+  }
+}
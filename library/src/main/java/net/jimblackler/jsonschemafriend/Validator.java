@@ -1,6 +1,5 @@
 package net.jimblackler.jsonschemafriend;
 
-import static java.util.Base64.getUrlDecoder;
 import static net.jimblackler.jsonschemafriend.ComparableUtils.makeComparable;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_3;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_4;
@@ -8,24 +7,25 @@ import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_6;
 import static net.jimblackler.jsonschemafriend.MetaSchemaUris.DRAFT_7;
 import static net.jimblackler.jsonschemafriend.Utils.setOf;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
+import com.fasterxml.jackson.databind.ObjectReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,28 +33,68 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
-import org.json.JSONObject;
 
 public class Validator {
   private static final Logger LOG = Logger.getLogger(Validator.class.getName());
+  private static final JsonFactory JSON_FACTORY =
+      JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+  // Readers are immutable and thread-safe, so validators that are not given an ObjectMapper share
+  // one, along with the caches behind it.
+  private static final ObjectReader DEFAULT_READER = new ObjectMapper().readerFor(Object.class);
+  private static final Predicate<ValidationError> ACCEPT_ALL = validationError -> true;
+  private static final BranchFailed BRANCH_FAILED = new BranchFailed();
+  private static final URI ROOT_URI = URI.create("");
+  // Trees other than Maps and Lists that are read in place.
+  private static final List<DocumentAdapter> BUILT_IN_ADAPTERS =
+      Arrays.asList(JsonNodeAdapter.INSTANCE, JsonOrgAdapter.INSTANCE);
+  // Used for subschemas where only the pass or fail outcome matters. Evaluation of the subschema
+  // stops at the first failure.
+  static final Consumer<ErrorRecord> FAIL_FAST =
+      record -> {
+        throw BRANCH_FAILED;
+      };
 
   private final RegExPatternSupplier regExPatternSupplier;
   private final Predicate<? super ValidationError> errorFilter;
 
   private final boolean validateFormats;
+  private final ErrorLimits errorLimits;
+  private final ObjectReader objectReader;
+  private final boolean retainDocuments;
 
   public Validator() {
-    this(validationError -> true);
+    this(ACCEPT_ALL);
   }
 
-  public Validator(boolean validateFormats) {
+  public Validator(ErrorLimits errorLimits) {
+    this(new CachedRegExPatternSupplier(JoniRegExPattern::new), ACCEPT_ALL, false, errorLimits);
+  }
+
+  /**
+   * @param objectMapper The ObjectMapper used to read JSON text, such as documents, content with
+   *     the application/json media type, and subtrees read by the {@link StreamingValidator}.
+   */
+  public Validator(ObjectMapper objectMapper) {
     this(
         new CachedRegExPatternSupplier(JoniRegExPattern::new),
-        validationError -> true,
-        validateFormats);
+        ACCEPT_ALL,
+        false,
+        ErrorLimits.UNLIMITED,
+        objectMapper);
+  }
+
+  public Validator(boolean validateFormats) {
+    this(
+        new CachedRegExPatternSupplier(JoniRegExPattern::new), ACCEPT_ALL, validateFormats);
   }
 
   public Validator(Predicate<? super ValidationError> errorFilter) {
@@ -70,9 +110,55 @@ public class Validator {
       RegExPatternSupplier regExPatternSupplier,
       Predicate<? super ValidationError> errorFilter,
       boolean validateFormats) {
+    this(regExPatternSupplier, errorFilter, validateFormats, ErrorLimits.UNLIMITED);
+  }
+
+  public Validator(
+      RegExPatternSupplier regExPatternSupplier,
+      Predicate<? super ValidationError> errorFilter,
+      boolean validateFormats,
+      ErrorLimits errorLimits) {
+    this(regExPatternSupplier, errorFilter, validateFormats, errorLimits, DEFAULT_READER, false);
+  }
+
+  public Validator(
+      RegExPatternSupplier regExPatternSupplier,
+      Predicate<? super ValidationError> errorFilter,
+      boolean validateFormats,
+      ErrorLimits errorLimits,
+      ObjectMapper objectMapper) {
+    this(
+        regExPatternSupplier,
+        errorFilter,
+        validateFormats,
+        errorLimits,
+        objectMapper.readerFor(Object.class),
+        false);
+  }
+
+  private Validator(
+      RegExPatternSupplier regExPatternSupplier,
+      Predicate<? super ValidationError> errorFilter,
+      boolean validateFormats,
+      ErrorLimits errorLimits,
+      ObjectReader objectReader,
+      boolean retainDocuments) {
     this.regExPatternSupplier = regExPatternSupplier;
     this.errorFilter = errorFilter;
     this.validateFormats = validateFormats;
+    this.errorLimits = errorLimits;
+    this.objectReader = objectReader;
+    this.retainDocuments = retainDocuments;
+  }
+
+  /**
+   * Returns a copy of this Validator whose errors hold the document they were found in, for {@link
+   * ValidationError#getDocument()}. By default errors hold only the failed object, so they do not
+   * keep the document from being collected.
+   */
+  public Validator retainingDocuments() {
+    return new Validator(
+        regExPatternSupplier, errorFilter, validateFormats, errorLimits, objectReader, true);
   }
 
   public static Object getObject(Object document, URI uri) throws MissingPathException {
@@ -113,55 +199,183 @@ public class Validator {
       Consumer<String> propertyConsumer,
       Consumer<Integer> itemConsumer,
       Map<String, Schema> dynamicAnchorsIn) {
+    DocumentAdapter adapter = AdaptedDocument.findAdapter(document, BUILT_IN_ADAPTERS);
+    Object root = adapter == null ? document : AdaptedDocument.wrap(adapter, document);
     Object object;
     try {
-      object = getObject(document, uri);
+      object = getObject(root, uri);
     } catch (MissingPathException e) {
       throw new IllegalStateException(e);
     }
+    return withErrorLimits(
+        errorConsumer,
+        errorSink ->
+            evaluate(
+                schema,
+                object,
+                InstancePath.root(uri, retainDocuments ? root : null),
+                errorSink,
+                propertyConsumer,
+                itemConsumer,
+                dynamicAnchorsIn),
+        object);
+  }
+
+  /**
+   * Runs an evaluation that reports to the given consumer, applying the error limits.
+   *
+   * @return The result of the evaluation, or stoppedResult if the evaluation was stopped because
+   *     the maximum number of errors was reached.
+   */
+  <T> T withErrorLimits(
+      Consumer<ValidationError> errorConsumer,
+      Function<Consumer<ErrorRecord>, T> evaluation,
+      T stoppedResult) {
+    if (errorLimits.isUnlimited()) {
+      return evaluation.apply(record -> errorConsumer.accept(record.build()));
+    }
+    LimitedErrorSink sink = new LimitedErrorSink(errorConsumer, errorLimits);
+    try {
+      return evaluation.apply(sink);
+    } catch (ErrorLimitReached e) {
+      if (e.sink != sink) {
+        throw e;
+      }
+      return stoppedResult;
+    }
+  }
 
-    Consumer<ValidationError> error =
-        validationError -> {
-          if (errorFilter.test(validationError)) {
-            errorConsumer.accept(validationError);
-          }
-        };
+  /** Evaluates an instance found at the given path, outside of any dynamic scope. */
+  Object evaluate(
+      Schema schema, Object instance, InstancePath path, Consumer<ErrorRecord> errorConsumer) {
+    return evaluate(schema, instance, path, errorConsumer, new HashMap<>());
+  }
+
+  /** Returns a consumer that passes on only the errors accepted by the error filter. */
+  Consumer<ErrorRecord> filter(Consumer<ErrorRecord> errorConsumer) {
+    if (errorFilter == ACCEPT_ALL) {
+      return errorConsumer;
+    }
+    return record -> {
+      // The filter needs the full error, so it is built here.
+      ValidationError validationError = record.build();
+      if (errorFilter.test(validationError)) {
+        errorConsumer.accept(() -> validationError);
+      }
+    };
+  }
+
+  ObjectReader getObjectReader() {
+    return objectReader;
+  }
+
+  RegExPatternSupplier getRegExPatternSupplier() {
+    return regExPatternSupplier;
+  }
+
+  private Object evaluate(
+      Schema schema,
+      Object instance,
+      InstancePath path,
+      Consumer<ErrorRecord> errorConsumer,
+      Map<String, Schema> dynamicAnchors) {
+    return evaluate(
+        schema, instance, path, errorConsumer, property -> {}, item -> {}, dynamicAnchors);
+  }
+
+  /**
+   * Evaluates a subschema where only the outcome is required, not the errors.
+   *
+   * @return true if the subschema passed.
+   */
+  private boolean passes(
+      Schema schema,
+      Object instance,
+      InstancePath path,
+      Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer,
+      Map<String, Schema> dynamicAnchors) {
+    try {
+      evaluate(schema, instance, path, FAIL_FAST, propertyConsumer, itemConsumer, dynamicAnchors);
+      return true;
+    } catch (BranchFailed e) {
+      return false;
+    }
+  }
+
+  private Object evaluate(
+      Schema schema,
+      Object instance,
+      InstancePath path,
+      Consumer<ErrorRecord> errorConsumer,
+      Consumer<String> propertyConsumer,
+      Consumer<Integer> itemConsumer,
+      Map<String, Schema> dynamicAnchorsIn) {
+    Object object = instance;
+
+    Consumer<ErrorRecord> error = filter(errorConsumer);
+    // Failure details are only needed if they can be reported or filtered. When they aren't,
+    // the branches of anyOf can also be evaluated in fail-fast mode.
+    boolean detailed = errorConsumer != FAIL_FAST || errorFilter != ACCEPT_ALL;
 
     if (schema.isFalse()) {
-      error.accept(new FalseSchemaError(uri, document, schema));
+      error.accept(() -> new FalseSchemaError(path, instance, schema));
       return null;
     }
 
-    Collection<String> evaluatedProperties = new HashSet<>();
-    Consumer<String> selfPropertyHandler =
-        property -> {
-          propertyConsumer.accept(property);
-          evaluatedProperties.add(property);
-        };
+    // The evaluated properties and items are only read by unevaluatedProperties and
+    // unevaluatedItems, so other subschemas pass them straight on without collecting them.
+    Collection<String> evaluatedProperties;
+    Consumer<String> selfPropertyHandler;
+    if (schema.getUnevaluatedProperties() == null) {
+      evaluatedProperties = null;
+      selfPropertyHandler = propertyConsumer;
+    } else {
+      evaluatedProperties = new HashSet<>();
+      selfPropertyHandler =
+          property -> {
+            propertyConsumer.accept(property);
+            evaluatedProperties.add(property);
+          };
+    }
 
-    Collection<Integer> evaluatedItems = new HashSet<>();
-    Consumer<Integer> selfItemHandler =
-        property -> {
-          itemConsumer.accept(property);
-          evaluatedItems.add(property);
-        };
+    Collection<Integer> evaluatedItems;
+    Consumer<Integer> selfItemHandler;
+    if (schema.getUnevaluatedItems() == null) {
+      evaluatedItems = null;
+      selfItemHandler = itemConsumer;
+    } else {
+      evaluatedItems = new HashSet<>();
+      selfItemHandler =
+          property -> {
+            itemConsumer.accept(property);
+            evaluatedItems.add(property);
+          };
+    }
 
-    Map<String, Schema> dynamicAnchors = new HashMap<>(dynamicAnchorsIn);
-    for (Map.Entry<String, Schema> entry : schema.getDynamicAnchorsInResource().entrySet()) {
-      String anchor = entry.getKey();
-      // We don't overwrite existing anchors, because "A $dynamicRef should resolve to the *first*
-      // $dynamicAnchor still in scope that is encountered when the schema is evaluated."
-      if (dynamicAnchors.containsKey(anchor)) {
-        continue;
+    // The anchors in scope are copied only when this schema adds to them.
+    Map<String, Schema> dynamicAnchors = dynamicAnchorsIn;
+    Map<String, Schema> dynamicAnchorsInResource = schema.getDynamicAnchorsInResource();
+    boolean addRecursiveAnchor = schema.isRecursiveAnchor() && !dynamicAnchorsIn.containsKey(null);
+    if (!dynamicAnchorsInResource.isEmpty() || addRecursiveAnchor) {
+      dynamicAnchors = new HashMap<>(dynamicAnchorsIn);
+      for (Map.Entry<String, Schema> entry : dynamicAnchorsInResource.entrySet()) {
+        String anchor = entry.getKey();
+        // We don't overwrite existing anchors, because "A $dynamicRef should resolve to the
+        // *first* $dynamicAnchor still in scope that is encountered when the schema is
+        // evaluated."
+        if (dynamicAnchors.containsKey(anchor)) {
+          continue;
+        }
+        dynamicAnchors.put(anchor, entry.getValue());
       }
-      dynamicAnchors.put(anchor, entry.getValue());
-    }
 
-    // To reduce parameter proliferation the same dynamicAnchors map is used for both 2019-09
-    // and 2020-12 validate-time anchors recursiveAnchors are stored as dynamicAnchors with key
-    // 'null'.
-    if (schema.isRecursiveAnchor() && !dynamicAnchors.containsKey(null)) {
-      dynamicAnchors.put(null, schema);
+      // To reduce parameter proliferation the same dynamicAnchors map is used for both 2019-09
+      // and 2020-12 validate-time anchors recursiveAnchors are stored as dynamicAnchors with key
+      // 'null'.
+      if (addRecursiveAnchor) {
+        dynamicAnchors.put(null, schema);
+      }
     }
 
     Schema _if = schema.getIf();
@@ -169,19 +383,11 @@ public class Validator {
     Schema _else = schema.getElse();
 
     if (_if != null) {
-      List<ValidationError> errors = new ArrayList<>();
       Collection<String> unevaluatedProperties = new HashSet<>();
       Collection<Integer> unevaluatedItems = new HashSet<>();
-      validate(
-          _if,
-          document,
-          uri,
-          errors::add,
-          unevaluatedProperties::add,
-          unevaluatedItems::add,
-          dynamicAnchors);
       Schema useSchema;
-      if (errors.isEmpty()) {
+      if (passes(
+          _if, instance, path, unevaluatedProperties::add, unevaluatedItems::add, dynamicAnchors)) {
         useSchema = _then;
         unevaluatedProperties.forEach(selfPropertyHandler);
         unevaluatedItems.forEach(selfItemHandler);
@@ -189,10 +395,10 @@ public class Validator {
         useSchema = _else;
       }
       if (useSchema != null) {
-        validate(
+        evaluate(
             useSchema,
-            document,
-            uri,
+            instance,
+            path,
             errorConsumer,
             selfPropertyHandler,
             selfItemHandler,
@@ -202,16 +408,16 @@ public class Validator {
 
     Schema ref = schema.getRef();
     if (ref != null) {
-      validate(
-          ref, document, uri, errorConsumer, selfPropertyHandler, selfItemHandler, dynamicAnchors);
+      evaluate(
+          ref, instance, path, errorConsumer, selfPropertyHandler, selfItemHandler, dynamicAnchors);
     }
 
     Schema recursiveRef1 = schema.getRecursiveRef();
     if (recursiveRef1 != null) {
-      validate(
+      evaluate(
           recursiveRef1.isRecursiveAnchor() ? dynamicAnchors.get(null) : recursiveRef1,
-          document,
-          uri,
+          instance,
+          path,
           errorConsumer,
           selfPropertyHandler,
           selfItemHandler,
@@ -235,10 +441,10 @@ public class Validator {
       if (toValidate == null) {
         LOG.warning("Could not resolve dynamic anchor: " + anchor);
       } else {
-        validate(
+        evaluate(
             toValidate,
-            document,
-            uri,
+            instance,
+            path,
             errorConsumer,
             selfPropertyHandler,
             selfItemHandler,
@@ -248,10 +454,10 @@ public class Validator {
 
     Collection<Schema> allOf = schema.getAllOf();
     for (Schema schema1 : allOf) {
-      validate(
+      evaluate(
           schema1,
-          document,
-          uri,
+          instance,
+          path,
           errorConsumer,
           selfPropertyHandler,
           selfItemHandler,
@@ -261,46 +467,63 @@ public class Validator {
     Collection<Schema> anyOf = schema.getAnyOf();
     if (anyOf != null) {
       int numberPassed = 0;
-      List<List<ValidationError>> allErrors = new ArrayList<>();
+      int branchDepth = branchDepth(errorConsumer);
+      List<List<ErrorRecord>> allErrors = new ArrayList<>();
       for (Schema schema1 : anyOf) {
-        List<ValidationError> errors = new ArrayList<>();
         Collection<String> unevaluatedProperties = new HashSet<>();
         Collection<Integer> unevaluatedItems = new HashSet<>();
-        validate(
-            schema1,
-            document,
-            uri,
-            errors::add,
-            unevaluatedProperties::add,
-            unevaluatedItems::add,
-            dynamicAnchors);
-        if (errors.isEmpty()) {
+        boolean passed;
+        if (detailed && branchDepth <= errorLimits.getMaxBranchDepth()) {
+          BranchErrors errors = new BranchErrors(branchDepth, true);
+          evaluate(
+              schema1,
+              instance,
+              path,
+              errors,
+              unevaluatedProperties::add,
+              unevaluatedItems::add,
+              dynamicAnchors);
+          passed = errors.isEmpty();
+          allErrors.add(errors.getRecords());
+        } else {
+          passed =
+              passes(
+                  schema1,
+                  instance,
+                  path,
+                  unevaluatedProperties::add,
+                  unevaluatedItems::add,
+                  dynamicAnchors);
+        }
+        if (passed) {
           numberPassed++;
           unevaluatedProperties.forEach(selfPropertyHandler);
           unevaluatedItems.forEach(selfItemHandler);
         }
-        allErrors.add(errors);
       }
       if (numberPassed == 0) {
-        error.accept(new AnyOfError(uri, document, allErrors, schema));
+        error.accept(
+            () -> new AnyOfError(path, instance, ErrorRecord.buildAll(allErrors), schema));
       }
     }
 
     Collection<Schema> oneOf = schema.getOneOf();
     if (oneOf != null) {
       List<Schema> passed = new ArrayList<>();
-      List<List<ValidationError>> allErrors = new ArrayList<>();
+      int branchDepth = branchDepth(errorConsumer);
+      boolean retain = branchDepth <= errorLimits.getMaxBranchDepth();
+      List<List<ErrorRecord>> allErrors = new ArrayList<>();
       Object passedObj = null;
       for (Schema schema1 : oneOf) {
-        List<ValidationError> errors = new ArrayList<>();
+        BranchErrors errors = new BranchErrors(branchDepth, retain);
         List<String> unevaluatedProperties = new ArrayList<>();
         List<Integer> unevaluatedItems = new ArrayList<>();
         passedObj =
-            validate(
+            evaluate(
                 schema1,
-                document,
-                uri,
-                errors::add,
+                instance,
+                path,
+                errors,
                 unevaluatedProperties::add,
                 unevaluatedItems::add,
                 dynamicAnchors);
@@ -309,10 +532,14 @@ public class Validator {
           unevaluatedProperties.forEach(selfPropertyHandler);
           unevaluatedItems.forEach(selfItemHandler);
         }
-        allErrors.add(errors);
+        if (retain) {
+          allErrors.add(errors.getRecords());
+        }
       }
       if (passed.size() != 1) {
-        error.accept(new OneOfError(uri, document, passed, allErrors, schema));
+        error.accept(
+            () ->
+                new OneOfError(path, instance, passed, ErrorRecord.buildAll(allErrors), schema));
       } else {
         object = passedObj;
       }
@@ -320,26 +547,16 @@ public class Validator {
 
     Schema not = schema.getNot();
     if (not != null) {
-      List<ValidationError> errors = new ArrayList<>();
-      validate(not, document, uri, errors::add, dynamicAnchors);
-      if (errors.isEmpty()) {
-        error.accept(new NotError(uri, document, schema));
+      if (passes(not, instance, path, property -> {}, item -> {}, dynamicAnchors)) {
+        error.accept(() -> new NotError(path, instance, schema));
       }
     }
 
     Collection<Schema> disallowSchemas = schema.getDisallowSchemas();
     for (Schema disallowSchema : disallowSchemas) {
-      List<ValidationError> errors = new ArrayList<>();
-      validate(
-          disallowSchema,
-          document,
-          uri,
-          errors::add,
-          selfPropertyHandler,
-          selfItemHandler,
-          dynamicAnchors);
-      if (errors.isEmpty()) {
-        error.accept(new DisallowError(uri, document, schema));
+      if (passes(
+          disallowSchema, instance, path, selfPropertyHandler, selfItemHandler, dynamicAnchors)) {
+        error.accept(() -> new DisallowError(path, instance, schema));
       }
     }
 
@@ -360,7 +577,7 @@ public class Validator {
       if (multipleOf != null) {
         multBD = new BigDecimal(multipleOf.toString());
         if (numBD.remainder(multBD).compareTo(BigDecimal.ZERO) != 0) {
-          error.accept(new MultipleError(uri, document, schema));
+          error.accept(() -> new MultipleError(path, instance, schema));
         } else {
           object = numBD.divide(multBD);
         }
@@ -369,17 +586,17 @@ public class Validator {
           && (exclusiveMaximumBoolean
               ? number.doubleValue() >= maximum.doubleValue()
               : number.doubleValue() > maximum.doubleValue())) {
-        error.accept(new MaximumError(uri, document, schema));
+        error.accept(() -> new MaximumError(path, instance, schema));
       }
 
       if (exclusiveMaximum != null && number.doubleValue() >= exclusiveMaximum.doubleValue()) {
-        error.accept(new ExclusiveMaximumError(uri, document, schema));
+        error.accept(() -> new ExclusiveMaximumError(path, instance, schema));
       }
       if (minimum != null) {
         if (exclusiveMinimumBoolean
             ? number.doubleValue() <= minimum.doubleValue()
             : number.doubleValue() < minimum.doubleValue()) {
-          error.accept(new MinimumError(uri, document, schema));
+          error.accept(() -> new MinimumError(path, instance, schema));
         } else {
           object =
               (new BigDecimal(number.toString()))
@@ -389,7 +606,7 @@ public class Validator {
       }
       if (exclusiveMinimum != null) {
         if (number.doubleValue() <= exclusiveMinimum.doubleValue()) {
-          error.accept(new ExclusiveMinimumError(uri, document, schema));
+          error.accept(() -> new ExclusiveMinimumError(path, instance, schema));
         } else {
           object =
               (new BigDecimal(number.toString()))
@@ -416,11 +633,11 @@ public class Validator {
         // Intentionally silenced.
       }
 
-      typeCheck(schema, document, uri, okTypes, disallow, error);
+      typeCheck(schema, instance, path, okTypes, disallow, error);
 
       Number divisibleBy = schema.getDivisibleBy();
       if (divisibleBy != null && number.doubleValue() / divisibleBy.doubleValue() % 1 != 0) {
-        error.accept(new DivisibleByError(uri, document, schema));
+        error.accept(() -> new DivisibleByError(path, instance, schema));
       }
 
     } else if (object instanceof String) {
@@ -429,16 +646,16 @@ public class Validator {
       Number minLength = schema.getMinLength();
       Number maxLength = schema.getMaxLength();
       if (maxLength != null && unicodeCompliantLength > maxLength.intValue()) {
-        error.accept(new MaxLengthError(uri, document, schema));
+        error.accept(() -> new MaxLengthError(path, instance, schema));
       }
       if (minLength != null && unicodeCompliantLength < minLength.intValue()) {
-        error.accept(new MinLengthError(uri, document, schema));
+        error.accept(() -> new MinLengthError(path, instance, schema));
       }
       String patternString = schema.getPattern();
       if (patternString != null) {
         try {
           if (!regExPatternSupplier.newPattern(patternString).matches(string)) {
-            error.accept(new PatternError(uri, document, schema));
+            error.accept(() -> new PatternError(path, instance, schema));
           }
         } catch (InvalidRegexException e) {
           LOG.warning("Invalid regex " + patternString);
@@ -451,15 +668,12 @@ public class Validator {
             FormatChecker.formatCheck(
                 string, format, schema.getMetaSchema(), regExPatternSupplier, this.validateFormats);
         if (message != null) {
-          error.accept(new FormatError(uri, document, schema, message));
+          error.accept(() -> new FormatError(path, instance, schema, message));
         } else if (format.equals("date-time")) {
           Instant instant = Instant.parse(string);
           object = instant.getEpochSecond();
         }
       }
-      String stringToValidate = string;
-      String contentEncoding = schema.getContentEncoding();
-
       boolean preDraft5 =
           DRAFT_3.equals(schema.getMetaSchema()) || DRAFT_4.equals(schema.getMetaSchema());
       boolean preDraft2019 =
@@ -467,34 +681,19 @@ public class Validator {
               || DRAFT_6.equals(schema.getMetaSchema())
               || DRAFT_7.equals(schema.getMetaSchema());
       if (preDraft2019) {
-        if ("base64".equals(contentEncoding)) {
-          Base64.Decoder urlDecoder = getUrlDecoder();
-          byte[] decoded = null;
-          try {
-            decoded = urlDecoder.decode(string);
-          } catch (IllegalArgumentException e) {
-            error.accept(new ContentEncodingError(uri, document, schema, e.getMessage()));
-          }
-          if (decoded != null) {
-            stringToValidate = new String(decoded, StandardCharsets.UTF_8);
-          }
-        }
-
-        String contentMediaType = schema.getContentMediaType();
-        if ("application/json".equals(contentMediaType)) {
-          try {
-            new ObjectMapper().readValue(stringToValidate, Object.class);
-          } catch (JsonProcessingException e) {
-            error.accept(new ContentEncodingError(uri, document, schema, e.getMessage()));
-          }
-        }
+        ContentChecker.check(
+            string,
+            "base64".equals(schema.getContentEncoding()),
+            "application/json".equals(schema.getContentMediaType()),
+            objectReader,
+            reason -> error.accept(() -> new ContentEncodingError(path, instance, schema, reason)));
       }
 
-      typeCheck(schema, document, uri, setOf("string"), disallow, errorConsumer);
+      typeCheck(schema, instance, path, setOf("string"), disallow, errorConsumer);
     } else if (object instanceof Boolean) {
-      typeCheck(schema, document, uri, setOf("boolean"), disallow, errorConsumer);
+      typeCheck(schema, instance, path, setOf("boolean"), disallow, errorConsumer);
     } else if (object instanceof List) {
-      typeCheck(schema, document, uri, setOf("array"), disallow, errorConsumer);
+      typeCheck(schema, instance, path, setOf("array"), disallow, errorConsumer);
       List<Object> jsonArray = (List<Object>) object;
       List<Schema> prefixItems = schema.getPrefixItems();
       int itemStart = 0;
@@ -502,10 +701,10 @@ public class Validator {
         itemStart = prefixItems.size();
         for (int idx = 0; idx != Math.min(prefixItems.size(), jsonArray.size()); idx++) {
           Object arrItem =
-              validate(
+              evaluate(
                   prefixItems.get(idx),
-                  document,
-                  PathUtils.append(uri, String.valueOf(idx)),
+                  jsonArray.get(idx),
+                  path.append(idx),
                   errorConsumer,
                   dynamicAnchors);
           jsonArray.set(idx, arrItem);
@@ -518,10 +717,10 @@ public class Validator {
           if (jsonArray.size() > itemsTuple.size() && additionalItems != null) {
             for (int idx = itemsTuple.size(); idx != jsonArray.size(); idx++) {
               Object arrItem =
-                  validate(
+                  evaluate(
                       additionalItems,
-                      document,
-                      PathUtils.append(uri, String.valueOf(idx)),
+                      jsonArray.get(idx),
+                      path.append(idx),
                       errorConsumer,
                       dynamicAnchors);
               jsonArray.set(idx, arrItem);
@@ -530,10 +729,10 @@ public class Validator {
           }
           for (int idx = 0; idx != Math.min(itemsTuple.size(), jsonArray.size()); idx++) {
             Object arrItem =
-                validate(
+                evaluate(
                     itemsTuple.get(idx),
-                    document,
-                    PathUtils.append(uri, String.valueOf(idx)),
+                    jsonArray.get(idx),
+                    path.append(idx),
                     errorConsumer,
                     dynamicAnchors);
             jsonArray.set(idx, arrItem);
@@ -545,12 +744,7 @@ public class Validator {
       Schema _items = schema.getItems();
       if (_items != null) {
         for (int idx = itemStart; idx < jsonArray.size(); idx++) {
-          validate(
-              _items,
-              document,
-              PathUtils.append(uri, String.valueOf(idx)),
-              errorConsumer,
-              dynamicAnchors);
+          evaluate(_items, jsonArray.get(idx), path.append(idx), errorConsumer, dynamicAnchors);
           selfItemHandler.accept(idx);
         }
       }
@@ -558,25 +752,24 @@ public class Validator {
       if (contains != null) {
         int numberPassed = 0;
         for (int idx = 0; idx != jsonArray.size(); idx++) {
-          List<ValidationError> errors = new ArrayList<>();
-          validate(
+          if (passes(
               contains,
-              document,
-              PathUtils.append(uri, String.valueOf(idx)),
-              errors::add,
-              dynamicAnchors);
-          if (errors.isEmpty()) {
+              jsonArray.get(idx),
+              path.append(idx),
+              property -> {},
+              item -> {},
+              dynamicAnchors)) {
             selfItemHandler.accept(idx);
             numberPassed++;
           }
         }
         Number minContains = schema.getMinContains();
         if (numberPassed < (minContains == null ? 1 : minContains.intValue())) {
-          error.accept(new MinContainsError(uri, document, schema));
+          error.accept(() -> new MinContainsError(path, instance, schema));
         }
         Number maxContains = schema.getMaxContains();
         if (maxContains != null && numberPassed > maxContains.intValue()) {
-          error.accept(new MaxContainsError(uri, document, schema));
+          error.accept(() -> new MaxContainsError(path, instance, schema));
         }
       }
 
@@ -587,10 +780,10 @@ public class Validator {
             continue;
           }
           Object arrItem =
-              validate(
+              evaluate(
                   unevaluatedItems,
-                  document,
-                  PathUtils.append(uri, String.valueOf(idx)),
+                  jsonArray.get(idx),
+                  path.append(idx),
                   errorConsumer,
                   dynamicAnchors);
           jsonArray.set(idx, arrItem);
@@ -600,39 +793,39 @@ public class Validator {
 
       Number maxItems = schema.getMaxItems();
       if (maxItems != null && jsonArray.size() > maxItems.intValue()) {
-        error.accept(new MaxItemsError(uri, document, schema));
+        error.accept(() -> new MaxItemsError(path, instance, schema));
       }
 
       Number minItems = schema.getMinItems();
       if (minItems != null && jsonArray.size() < minItems.intValue()) {
-        error.accept(new MinItemsError(uri, document, schema));
+        error.accept(() -> new MinItemsError(path, instance, schema));
       }
 
       if (schema.isUniqueItems()) {
         Collection<Object> items = new HashSet<>();
         for (Object o : jsonArray) {
           if (!items.add(makeComparable(o))) {
-            error.accept(new UniqueItemsError(uri, document, schema));
+            error.accept(() -> new UniqueItemsError(path, instance, schema));
           }
         }
       }
 
     } else if (object instanceof Map) {
-      typeCheck(schema, document, uri, setOf("object"), disallow, errorConsumer);
+      typeCheck(schema, instance, path, setOf("object"), disallow, errorConsumer);
       Map<String, Object> jsonObject = (Map<String, Object>) object;
       Number maxProperties = schema.getMaxProperties();
       if (maxProperties != null && jsonObject.size() > maxProperties.intValue()) {
-        error.accept(new MaxPropertiesError(uri, document, schema));
+        error.accept(() -> new MaxPropertiesError(path, instance, schema));
       }
       Number minProperties = schema.getMinProperties();
       if (minProperties != null && jsonObject.size() < minProperties.intValue()) {
-        error.accept(new MinPropertiesError(uri, document, schema));
+        error.accept(() -> new MinPropertiesError(path, instance, schema));
       }
 
       Collection<String> requiredProperties = schema.getRequiredProperties();
       for (String property : requiredProperties) {
         if (!jsonObject.containsKey(property)) {
-          error.accept(new MissingPropertyError(uri, document, property, schema));
+          error.accept(() -> new MissingPropertyError(path, instance, property, schema));
         }
       }
 
@@ -643,7 +836,7 @@ public class Validator {
         }
         String property = entry.getKey();
         if (!jsonObject.containsKey(property)) {
-          error.accept(new MissingPropertyError(uri, document, property, schema));
+          error.accept(() -> new MissingPropertyError(path, instance, property, schema));
         }
       }
 
@@ -653,10 +846,10 @@ public class Validator {
       for (String property : jsonObject.keySet()) {
         if (_properties.containsKey(property)) {
           Object objItem =
-              validate(
+              evaluate(
                   _properties.get(property),
-                  document,
-                  PathUtils.append(uri, property),
+                  jsonObject.get(property),
+                  path.append(property),
                   errorConsumer,
                   dynamicAnchors);
           jsonObject.put(property, objItem);
@@ -672,10 +865,10 @@ public class Validator {
           try {
             if (regExPatternSupplier.newPattern(pattern1).matches(property)) {
               Object objItem =
-                  validate(
+                  evaluate(
                       schema1,
-                      document,
-                      PathUtils.append(uri, property),
+                      jsonObject.get(property),
+                      path.append(property),
                       errorConsumer,
                       dynamicAnchors);
               jsonObject.put(property, objItem);
@@ -688,26 +881,8 @@ public class Validator {
         }
         Schema propertyNames = schema.getPropertyNames();
         if (propertyNames != null) {
-          try {
-            // To provide developer-friendly validation error messages, the validator takes a URL to
-            // the object being validated, relative to the base document. In turn, to avoid
-            // redundant coupled parameters, the object is not passed as a parameter but converted
-            // to the object inside the validator. This is a problem for propertyName validation
-            // because the property name itself cannot have a path using the current version of JSON
-            // Pointers. Relative JSON Pointers does support property names; but the standard states
-            // these pointers are not suitable for use in URIs. As a workaround we use the query
-            // part of the URL to carry the property name into the child iteration of the validator.
-            URI propertyPath =
-                new URI(
-                    uri.getScheme(),
-                    uri.getAuthority(),
-                    uri.getPath(),
-                    property,
-                    uri.getRawFragment());
-            validate(propertyNames, document, propertyPath, errorConsumer, dynamicAnchors);
-          } catch (URISyntaxException e) {
-            throw new IllegalStateException(e);
-          }
+          evaluate(
+              propertyNames, property, path.propertyName(property), errorConsumer, dynamicAnchors);
         }
       }
       Map<String, Schema> schemaDependencies = schema.getDependentSchemas();
@@ -716,10 +891,10 @@ public class Validator {
         if (!jsonObject.containsKey(property)) {
           continue;
         }
-        validate(
+        evaluate(
             entry.getValue(),
-            document,
-            uri,
+            instance,
+            path,
             errorConsumer,
             selfPropertyHandler,
             selfItemHandler,
@@ -730,10 +905,10 @@ public class Validator {
       if (additionalProperties != null) {
         for (String property : remainingProperties) {
           Object objItem =
-              validate(
+              evaluate(
                   additionalProperties,
-                  document,
-                  PathUtils.append(uri, property),
+                  jsonObject.get(property),
+                  path.append(property),
                   errorConsumer,
                   dynamicAnchors);
           jsonObject.put(property, objItem);
@@ -747,10 +922,10 @@ public class Validator {
         remainingProperties2.removeAll(evaluatedProperties);
         for (String property : remainingProperties2) {
           Object objItem =
-              validate(
+              evaluate(
                   unevaluatedProperties,
-                  document,
-                  PathUtils.append(uri, property),
+                  jsonObject.get(property),
+                  path.append(property),
                   errorConsumer,
                   dynamicAnchors);
           jsonObject.put(property, objItem);
@@ -770,19 +945,19 @@ public class Validator {
           if (jsonObject.containsKey(dependency)) {
             continue;
           }
-          error.accept(new DependencyError(uri, document, property, dependency, schema));
+          error.accept(() -> new DependencyError(path, instance, property, dependency, schema));
         }
       }
 
     } else if (object == null) {
-      typeCheck(schema, document, uri, setOf("null"), disallow, errorConsumer);
+      typeCheck(schema, instance, path, setOf("null"), disallow, errorConsumer);
     } else {
-      error.accept(new UnexpectedTypeError(uri, document, object, schema));
+      error.accept(() -> new UnexpectedTypeError(path, instance, schema));
     }
 
     if (schema.hasConst()) {
       if (!makeComparable(schema.getConst()).equals(makeComparable(object))) {
-        error.accept(new ConstError(uri, document, schema));
+        error.accept(() -> new ConstError(path, instance, schema));
       }
     }
 
@@ -799,7 +974,7 @@ public class Validator {
         i += 1;
       }
       if (!matchedOne) {
-        error.accept(new EnumError(uri, document, schema));
+        error.accept(() -> new EnumError(path, instance, schema));
       } else {
         object = i;
       }
@@ -808,18 +983,18 @@ public class Validator {
     return object;
   }
 
-  private void typeCheck(
+  void typeCheck(
       Schema schema,
-      Object document,
-      URI path,
+      Object instance,
+      InstancePath path,
       Set<String> types,
       Collection<String> disallow,
-      Consumer<? super ValidationError> errorConsumer) {
+      Consumer<ErrorRecord> errorConsumer) {
     if (!disallow.isEmpty()) {
       Collection<String> typesIn0 = new HashSet<>(types);
       typesIn0.retainAll(disallow);
       if (!typesIn0.isEmpty()) {
-        errorConsumer.accept(new TypeDisallowedError(path, document, typesIn0, schema));
+        errorConsumer.accept(() -> new TypeDisallowedError(path, instance, typesIn0, schema));
       }
     }
 
@@ -831,9 +1006,7 @@ public class Validator {
     Collection<Schema> typesSchema = schema.getTypesSchema();
 
     for (Schema schema1 : typesSchema) {
-      List<ValidationError> errors = new ArrayList<>();
-      validate(schema1, document, path, errors::add);
-      if (errors.isEmpty()) {
+      if (passes(schema1, instance, path, property -> {}, item -> {}, new HashMap<>())) {
         return;
       }
     }
@@ -853,7 +1026,7 @@ public class Validator {
       return;
     }
 
-    errorConsumer.accept(new TypeError(path, document, explicitTypes, types, schema));
+    errorConsumer.accept(() -> new TypeError(path, instance, explicitTypes, types, schema));
   }
 
   public Object validate(Schema schema, File file) throws ValidationException, IOException {
@@ -906,7 +1079,7 @@ public class Validator {
       if (string == null) {
         string = "null";
       }
-      return validate(schema, new ObjectMapper().readValue(string, Object.class));
+      return validate(schema, (Object) objectReader.readValue(string));
     } catch (JsonProcessingException e) {
       throw new IllegalStateException(e);
     }
@@ -914,15 +1087,27 @@ public class Validator {
 
   public Object validate(Schema schema, InputStream inputStream)
       throws ValidationException, IOException {
-    return validate(schema, new ObjectMapper().readValue(inputStream, Object.class));
+    return validate(schema, (Object) objectReader.readValue(inputStream));
+  }
+
+  /**
+   * Validates a UTF-8 JSON document. The document is indexed rather than built as maps and lists,
+   * and strings and numbers are only decoded when a keyword reads them. The returned document is a
+   * view over the bytes, with any values transformed by validation replaced.
+   */
+  public Object validate(Schema schema, byte[] json, Consumer<ValidationError> errorConsumer)
+      throws IOException {
+    return validate(schema, JsonTape.parse(json, objectReader), errorConsumer);
+  }
+
+  public Object validate(Schema schema, byte[] json) throws ValidationException, IOException {
+    return validate(schema, JsonTape.parse(json, objectReader));
   }
 
   public Object validate(Schema schema, URL url, Consumer<ValidationError> errorConsumer)
       throws IOException {
     return validate(
-        schema,
-        new ObjectMapper().readValue(UrlUtils.readFromStream(url), Object.class),
-        errorConsumer);
+        schema, (Object) objectReader.readValue(UrlUtils.readFromStream(url)), errorConsumer);
   }
 
   public Object validate(Schema schema, URI uri, Consumer<ValidationError> errorConsumer)
@@ -939,6 +1124,92 @@ public class Validator {
     return validate(schema, document, URI.create(""), errorConsumer);
   }
 
+  /** Validates a document, returning the errors with the document rather than throwing them. */
+  public ValidationResult validateForResult(Schema schema, Object document) {
+    List<ValidationError> errors = new ArrayList<>();
+    Object result = validate(schema, document, errors::add);
+    return new ValidationResult(result, errors);
+  }
+
+  /** Validates a document in the common ForkJoinPool. */
+  public CompletableFuture<ValidationResult> validateAsync(Schema schema, Object document) {
+    return validateAsync(schema, document, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Validates a document with the given executor. The Validator may be shared by any number of
+   * concurrent validations. To bound the number in progress and deliver results in order, use a
+   * {@link ValidationPipeline}.
+   */
+  public CompletableFuture<ValidationResult> validateAsync(
+      Schema schema, Object document, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> validateForResult(schema, document), executor);
+  }
+
+  /**
+   * Validates each document of a batch, in order, passing each result to the sink. The state that
+   * validation needs outside of the schema, such as the buffer for errors, is reused from one
+   * document to the next. The results of valid documents share an empty error list.
+   */
+  public void validateAll(Schema schema, Iterable<?> documents, ResultSink sink) {
+    Scratch scratch = new Scratch();
+    long index = 0;
+    for (Object document : documents) {
+      sink.accept(index++, validate(schema, document, scratch));
+    }
+  }
+
+  /** Validates the documents of a batch in parallel, in the common ForkJoinPool. */
+  public void validateAllParallel(Schema schema, Spliterator<?> documents, ResultSink sink) {
+    validateAllParallel(schema, documents, sink, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Validates the documents of a batch in parallel, splitting the spliterator into runs of
+   * documents that are each validated by one thread with its own reused state. The sink can be
+   * called by several threads at once, and the index of each result is its position in the
+   * spliterator. A spliterator that cannot report the size of the runs it splits off is validated
+   * by one thread.
+   */
+  public void validateAllParallel(
+      Schema schema, Spliterator<?> documents, ResultSink sink, ForkJoinPool pool) {
+    long size = documents.estimateSize();
+    long threshold =
+        size == Long.MAX_VALUE ? 1000 : Math.max(1, size / (pool.getParallelism() * 4L));
+    pool.invoke(new ValidateAllTask(schema, documents, 0, sink, threshold));
+  }
+
+  private ValidationResult validate(Schema schema, Object document, Scratch scratch) {
+    List<ValidationError> errors = scratch.errors;
+    Object result =
+        validate(
+            schema,
+            document,
+            ROOT_URI,
+            scratch.errorConsumer,
+            property -> {},
+            item -> {},
+            Collections.emptyMap());
+    if (errors.isEmpty()) {
+      return new ValidationResult(result, Collections.emptyList());
+    }
+    ValidationResult validationResult = new ValidationResult(result, new ArrayList<>(errors));
+    errors.clear();
+    return validationResult;
+  }
+
+  /**
+   * Validates a document held in a tree read through the given adapter. Jackson JsonNode and
+   * org.json trees are recognized without an adapter being specified.
+   */
+  public Object validate(
+      Schema schema,
+      Object document,
+      DocumentAdapter adapter,
+      Consumer<ValidationError> errorConsumer) {
+    return validate(schema, AdaptedDocument.wrap(adapter, document), errorConsumer);
+  }
+
   public Map<String, Object> validateWithOutput(Schema schema, Object document)
       throws GenerationException {
     Map<String, Object> output = new LinkedHashMap<>();
@@ -967,26 +1238,242 @@ public class Validator {
     return output;
   }
 
-  public static void main(String[] args) {
+  /**
+   * Validates a document and writes the result in one of the standard output formats. Errors are
+   * written as they are found, so the "valid" property follows the "errors" array, except in the
+   * flag format.
+   */
+  public void validateWithOutput(
+      Schema schema, Object document, OutputFormat outputFormat, JsonGenerator generator)
+      throws IOException {
+    generator.writeStartObject();
+    if (outputFormat == OutputFormat.FLAG) {
+      DocumentAdapter adapter = AdaptedDocument.findAdapter(document, BUILT_IN_ADAPTERS);
+      Object object = adapter == null ? document : AdaptedDocument.wrap(adapter, document);
+      // Only the outcome is written, so the evaluation stops at the first failure.
+      boolean valid =
+          passes(
+              schema,
+              object,
+              InstancePath.root(URI.create("")),
+              property -> {},
+              item -> {},
+              new HashMap<>());
+      generator.writeBooleanField("valid", valid);
+      generator.writeEndObject();
+      return;
+    }
+
+    OutputUnitWriter outputUnitWriter = new OutputUnitWriter(generator, outputFormat);
+    outputUnitWriter.writeLocations(schema, URI.create(""));
+    boolean[] valid = {true};
     try {
-      String schema = new String(Files.readAllBytes(Paths.get(args[1])));
-      SchemaStore schemaStore = new SchemaStore();
-      Schema testSchema = schemaStore.loadSchemaJson(schema);
-      Validator validator = new Validator();
-      BufferedReader reader = new BufferedReader(new FileReader(args[1]));
-      String line = reader.readLine();
-      while (line != null) {
-        try {
-          Map out = (Map) validator.validateJson(testSchema, line);
-          JSONObject jo = new JSONObject(out);
-          System.out.println(jo.toString());
-          line = reader.readLine();
-        } catch (SchemaException e) {
-          System.err.println("ERROR");
+      validate(
+          schema,
+          document,
+          validationError -> {
+            try {
+              if (valid[0]) {
+                generator.writeArrayFieldStart("errors");
+                valid[0] = false;
+              }
+              outputUnitWriter.writeError(validationError);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (!valid[0]) {
+      generator.writeEndArray();
+    }
+    generator.writeBooleanField("valid", valid[0]);
+    generator.writeEndObject();
+  }
+
+  /**
+   * Validates a document and writes the result in one of the standard output formats. The writer
+   * is flushed but not closed.
+   */
+  public void validateWithOutput(
+      Schema schema, Object document, OutputFormat outputFormat, Writer writer) throws IOException {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+      validateWithOutput(schema, document, outputFormat, generator);
+    }
+  }
+
+  /**
+   * Validates a file of newline-delimited JSON documents against a schema. See {@link
+   * BatchValidator}. It can also validate a directory of JSON files, see {@link
+   * DirectoryValidator}, or run a {@link ValidationDaemon}.
+   *
+   * <p>Usage: {@code <schema file> <data file, or - for standard input, or --directory <directory>
+   * [--cache <file>]> [--threads <count>] [--queue <batches>] [--output <file>] [--errors <file>]
+   * [--checkpoint <file> [--checkpoint-interval <MiB>] [--resume]] [--processes <count>
+   * [--shard-size <MiB>] [--retries <count>]]}, or {@code --daemon <port> [--threads <count>]}
+   */
+  public static void main(String[] args) {
+    System.exit(BatchValidator.run(args, System.in, System.out, System.err));
+  }
+
+  /**
+   * Returns the nesting depth of anyOf and oneOf branches that report to the given error consumer.
+   */
+  private static int branchDepth(Consumer<ErrorRecord> errorConsumer) {
+    return errorConsumer instanceof BranchErrors ? ((BranchErrors) errorConsumer).depth + 1 : 1;
+  }
+
+  /**
+   * Collects the errors of an anyOf or oneOf branch. The records are only kept if they are needed
+   * for the branch details of the enclosing error.
+   */
+  private static class BranchErrors implements Consumer<ErrorRecord> {
+    private final int depth;
+    private final List<ErrorRecord> records;
+    private int count;
+
+    BranchErrors(int depth, boolean retain) {
+      this.depth = depth;
+      records = retain ? new ArrayList<>() : null;
+    }
+
+    @Override
+    public void accept(ErrorRecord record) {
+      count++;
+      if (records != null) {
+        records.add(record);
+      }
+    }
+
+    boolean isEmpty() {
+      return count == 0;
+    }
+
+    List<ErrorRecord> getRecords() {
+      return records;
+    }
+  }
+
+  /** State reused by one thread across the documents of a batch. */
+  private static class Scratch {
+    final List<ValidationError> errors = new ArrayList<>();
+    final Consumer<ValidationError> errorConsumer = errors::add;
+  }
+
+  /** Validates a run of documents, splitting off runs for other threads while it is large. */
+  private class ValidateAllTask extends RecursiveAction {
+    private final Schema schema;
+    private final Spliterator<?> documents;
+    private final long start;
+    private final ResultSink sink;
+    private final long threshold;
+
+    ValidateAllTask(
+        Schema schema, Spliterator<?> documents, long start, ResultSink sink, long threshold) {
+      this.schema = schema;
+      this.documents = documents;
+      this.start = start;
+      this.sink = sink;
+      this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+      List<ValidateAllTask> forked = new ArrayList<>();
+      long index = start;
+      while (documents.estimateSize() > threshold) {
+        Spliterator<?> prefix = documents.trySplit();
+        if (prefix == null) {
+          break;
+        }
+        long prefixSize = prefix.getExactSizeIfKnown();
+        if (prefixSize == -1) {
+          // The index of the rest is unknown until the prefix has been counted.
+          index += validateAll(prefix, index);
+          continue;
+        }
+        ValidateAllTask task = new ValidateAllTask(schema, prefix, index, sink, threshold);
+        task.fork();
+        forked.add(task);
+        index += prefixSize;
+      }
+      validateAll(documents, index);
+      for (ValidateAllTask task : forked) {
+        task.join();
+      }
+    }
+
+    /** @return The number of documents validated. */
+    private long validateAll(Spliterator<?> run, long start) {
+      Scratch scratch = new Scratch();
+      long[] index = {start};
+      run.forEachRemaining(
+          document -> sink.accept(index[0]++, validate(schema, document, scratch)));
+      return index[0] - start;
+    }
+  }
+
+  /** Applies the maximum error count and deduplication of {@link ErrorLimits} to the result. */
+  private static class LimitedErrorSink implements Consumer<ErrorRecord> {
+    private final Consumer<ValidationError> errorConsumer;
+    private final int maxErrors;
+    private final Map<String, ValidationError> firstErrors;
+    private int count;
+
+    LimitedErrorSink(Consumer<ValidationError> errorConsumer, ErrorLimits errorLimits) {
+      this.errorConsumer = errorConsumer;
+      maxErrors = errorLimits.getMaxErrors();
+      firstErrors = errorLimits.isDeduplicate() ? new HashMap<>() : null;
+    }
+
+    @Override
+    public void accept(ErrorRecord record) {
+      ValidationError validationError = record.build();
+      if (firstErrors != null) {
+        // The message distinguishes errors of the same keyword, such as two missing properties.
+        // The message of anyOf and oneOf errors quotes the branch errors with their locations, so
+        // it is left out to allow those to be merged across array elements.
+        String message =
+            validationError instanceof AnyOfError || validationError instanceof OneOfError
+                ? ""
+                : validationError.getMessage();
+        String key =
+            validationError.getClass().getName()
+                + " "
+                + validationError.getSchema().getUri()
+                + " "
+                + validationError.getPath().toPattern()
+                + " "
+                + message;
+        ValidationError first = firstErrors.putIfAbsent(key, validationError);
+        if (first != null) {
+          first.addOccurrence();
+          return;
         }
       }
-    } catch (SchemaException | IOException e) {
-      System.err.println(e);
+      errorConsumer.accept(validationError);
+      count++;
+      if (count >= maxErrors) {
+        throw new ErrorLimitReached(this);
+      }
+    }
+  }
+
+  /** Thrown to stop validation when the maximum number of errors has been reported. */
+  private static class ErrorLimitReached extends RuntimeException {
+    private final LimitedErrorSink sink;
+
+    ErrorLimitReached(LimitedErrorSink sink) {
+      super(null, null, false, false);
+      this.sink = sink;
+    }
+  }
+
+  /** Thrown to abandon the evaluation of a subschema as soon as it is known to have failed. */
+  static class BranchFailed extends RuntimeException {
+    BranchFailed() {
+      super(null, null, false, false);
     }
   }
 }
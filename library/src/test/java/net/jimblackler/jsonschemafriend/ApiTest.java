@@ -1,11 +1,22 @@
 package net.jimblackler.jsonschemafriend;
 
 import static net.jimblackler.jsonschemafriend.ReaderUtils.streamToTempFile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
@@ -30,6 +41,25 @@ public class ApiTest {
         });
   }
 
+  @Test
+  void configuredObjectMapper() throws Exception {
+    ObjectMapper objectMapper =
+        new ObjectMapper()
+            .enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION)
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    SchemaStore schemaStore = new SchemaStore(null, false, new CacheLoader(), objectMapper);
+    Schema schema =
+        schemaStore.loadSchemaJson(
+            "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"type\": \"number\"}");
+    Validator validator = new Validator(objectMapper);
+    assertTrue(validator.validateJson(schema, "1.5") instanceof BigDecimal);
+    assertThrows(
+        IllegalStateException.class,
+        () -> {
+          validator.validateJson(schema, "{\"a\": 1, \"a\": 2}");
+        });
+  }
+
   @Test
   void jsonStringsFromResources() throws Exception {
     SchemaStore schemaStore = new SchemaStore(); // Initialize a SchemaStore.
@@ -69,6 +99,28 @@ public class ApiTest {
         });
   }
 
+  @Test
+  void errorDocument() throws Exception {
+    SchemaStore schemaStore = new SchemaStore();
+    Schema schema =
+        schemaStore.loadSchemaJson(
+            "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"properties\": {\"a\": {\"type\": \"integer\"}}}");
+    Map<String, Object> document = new HashMap<>();
+    document.put("a", "x");
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    assertEquals(1, errors.size());
+    assertNull(errors.get(0).getDocument());
+    assertEquals("x", errors.get(0).getObject());
+    assertEquals("#/a", errors.get(0).getUri().toString());
+
+    errors.clear();
+    new Validator().retainingDocuments().validate(schema, document, errors::add);
+    assertEquals(1, errors.size());
+    assertSame(document, errors.get(0).getDocument());
+  }
+
   @Test
   void resources() throws Exception {
     SchemaStore schemaStore = new SchemaStore(); // Initialize a SchemaStore.
@@ -0,0 +1,79 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+public class BatchCoordinatorTest {
+  private static File write(String content, String suffix) throws IOException {
+    File file = File.createTempFile("coordinator", suffix);
+    file.deleteOnExit();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  void sameAsOneProcess() throws Exception {
+    String schemaJson =
+        "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+            + "\"properties\": {\"n\": {\"type\": \"integer\", \"maximum\": 4000}}}";
+    StringBuilder input = new StringBuilder();
+    int invalid = 0;
+    for (int n = 0; n != 10000; n++) {
+      if (n % 997 == 0) {
+        input.append("{\"n\":\n");
+      } else {
+        input.append("{\"n\":").append(n).append("}\n");
+        invalid += n > 4000 ? 1 : 0;
+      }
+    }
+    File schemaFile = write(schemaJson, ".json");
+    File dataFile = write(input.toString(), ".ndjson");
+
+    BatchValidator batchValidator =
+        new BatchValidator(new Validator(), new SchemaStore().loadSchema(schemaFile), 1);
+    ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+    ByteArrayOutputStream expectedErrorOutput = new ByteArrayOutputStream();
+    batchValidator.validate(dataFile, expectedOutput, expectedErrorOutput);
+
+    BatchCoordinator coordinator =
+        new BatchCoordinator(
+            BatchCoordinator.workerCommand(schemaFile.getPath(), dataFile.getPath(), 1),
+            2,
+            10000,
+            1,
+            System.err);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    BatchValidator.Summary summary = coordinator.validate(dataFile, output, errorOutput);
+    assertEquals(expectedOutput.toString("UTF-8"), output.toString("UTF-8"));
+    assertEquals(expectedErrorOutput.toString("UTF-8"), errorOutput.toString("UTF-8"));
+    assertEquals(10000, summary.getDocuments());
+    assertEquals(11, summary.getMalformed());
+    assertEquals(invalid, summary.getInvalid());
+  }
+
+  @Test
+  void failedShards() throws Exception {
+    File schemaFile = write("{}", ".json");
+    File dataFile = write("{}\n{}\n", ".ndjson");
+    BatchCoordinator coordinator =
+        new BatchCoordinator(
+            BatchCoordinator.workerCommand(schemaFile.getPath(), dataFile.getPath() + ".gone", 1),
+            1,
+            1,
+            2,
+            System.err);
+    assertThrows(
+        IOException.class,
+        () ->
+            coordinator.validate(
+                dataFile, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+  }
+}
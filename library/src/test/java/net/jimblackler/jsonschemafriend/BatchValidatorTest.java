@@ -0,0 +1,230 @@
+package net.jimblackler.jsonschemafriend;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class BatchValidatorTest {
+  @Test
+  void ordered() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"properties\": {\"n\": {\"type\": \"integer\", \"multipleOf\": 3}}}");
+    StringBuilder input = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    for (int n = 0; n != 5000; n++) {
+      input.append("{\"n\":").append(n).append("}\n");
+      if (n % 3 == 0) {
+        // Validation against multipleOf divides the value.
+        expected.append("{\"n\":").append(n / 3).append("}\n");
+      }
+    }
+    input.append("\n{\"n\":\n");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    BatchValidator.Summary summary =
+        new BatchValidator(new Validator(), schema, 3, 2)
+            .validate(new StringReader(input.toString()), output, errorOutput);
+    assertEquals(expected.toString(), new String(output.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(5001, summary.getDocuments());
+    assertEquals(1667, summary.getValid());
+    assertEquals(3333, summary.getInvalid());
+    assertEquals(1, summary.getMalformed());
+    String[] errorLines = new String(errorOutput.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    assertEquals(3334, errorLines.length);
+    assertTrue(errorLines[0].startsWith("{\"line\":2,"));
+    assertTrue(errorLines[3333].startsWith("{\"line\":5002,"));
+  }
+
+  @Test
+  void fileSameAsReader() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"properties\": {\"s\": {\"type\": \"string\", \"maxLength\": 40}}}");
+    StringBuilder input = new StringBuilder();
+    for (int n = 0; n != 20000; n++) {
+      input.append("{\"s\": \"");
+      for (int idx = 0; idx != n % 50; idx++) {
+        input.append('\u00e9');
+      }
+      input.append(n % 7 == 0 ? "\"}\r\n" : n % 11 == 0 ? "\n" : "\"}\n");
+    }
+    input.append("{\"s\": 1}");
+    File file = File.createTempFile("batch", ".ndjson");
+    file.deleteOnExit();
+    Files.write(file.toPath(), input.toString().getBytes(StandardCharsets.UTF_8));
+
+    BatchValidator batchValidator = new BatchValidator(new Validator(), schema, 2);
+    ByteArrayOutputStream expectedOutput = new ByteArrayOutputStream();
+    ByteArrayOutputStream expectedErrorOutput = new ByteArrayOutputStream();
+    batchValidator.validate(
+        new StringReader(input.toString()), expectedOutput, expectedErrorOutput);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    BatchValidator.Summary summary = batchValidator.validate(file, output, errorOutput);
+    assertEquals(expectedOutput.toString("UTF-8"), output.toString("UTF-8"));
+    // The messages for malformed lines differ between the character and byte parsers.
+    assertEquals(
+        expectedErrorOutput.toString("UTF-8").replaceAll("\"error\":\"[^\"]*\"}\n", ""),
+        errorOutput.toString("UTF-8").replaceAll("\"error\":\"[^\"]*\"}\n", ""));
+    assertEquals(20001, summary.getDocuments());
+  }
+
+  @Test
+  void resume() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"items\": {\"type\": \"integer\", \"maximum\": 5}}");
+    StringBuilder first = new StringBuilder();
+    StringBuilder rest = new StringBuilder();
+    for (int n = 0; n != 30000; n++) {
+      (n < 12345 ? first : rest).append('[').append(n % 7).append(n % 13 == 0 ? "\n" : "]\n");
+    }
+    File input = File.createTempFile("batch", ".ndjson");
+    File output = File.createTempFile("batch", ".out");
+    File errorOutput = File.createTempFile("batch", ".err");
+    File checkpoint = File.createTempFile("batch", ".checkpoint");
+    for (File file : new File[] {input, output, errorOutput, checkpoint}) {
+      file.deleteOnExit();
+    }
+    BatchValidator batchValidator = new BatchValidator(new Validator(), schema, 2);
+
+    Files.write(input.toPath(), (first.toString() + rest).getBytes(StandardCharsets.UTF_8));
+    batchValidator.validate(input, output, errorOutput, checkpoint, 1 << 16, false);
+    byte[] expectedOutput = Files.readAllBytes(output.toPath());
+    byte[] expectedErrorOutput = Files.readAllBytes(errorOutput.toPath());
+
+    // A run that stopped after its last checkpoint, having written more output.
+    Files.write(input.toPath(), first.toString().getBytes(StandardCharsets.UTF_8));
+    batchValidator.validate(input, output, errorOutput, checkpoint, 1 << 16, false);
+    Files.write(output.toPath(), "[1]\n".getBytes(StandardCharsets.UTF_8), APPEND);
+    Files.write(input.toPath(), rest.toString().getBytes(StandardCharsets.UTF_8), APPEND);
+
+    BatchValidator.Summary summary =
+        batchValidator.validate(input, output, errorOutput, checkpoint, 1 << 16, true);
+    assertArrayEquals(expectedOutput, Files.readAllBytes(output.toPath()));
+    assertArrayEquals(expectedErrorOutput, Files.readAllBytes(errorOutput.toPath()));
+    assertEquals(30000, summary.getDocuments());
+  }
+
+  @Test
+  @Timeout(60)
+  void readerFailsWithQueueFull() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"properties\": {\"s\": {\"pattern\": \"a\"}}}");
+    // The worker is held until after the reader has failed, so the writer waits on the first batch
+    // while the second fills the queue.
+    CountDownLatch release = new CountDownLatch(1);
+    Validator validator =
+        new Validator(
+            pattern ->
+                text -> {
+                  try {
+                    release.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                  return true;
+                },
+            validationError -> true);
+    StringBuilder lines = new StringBuilder();
+    for (int n = 0; n != 2000; n++) {
+      lines.append("{\"s\": \"a\"}\n");
+    }
+    Reader input =
+        new Reader() {
+          private final Reader lineReader = new StringReader(lines.toString());
+
+          @Override
+          public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = lineReader.read(buffer, offset, length);
+            if (read != -1) {
+              return read;
+            }
+            new Thread(
+                    () -> {
+                      try {
+                        Thread.sleep(200);
+                      } catch (InterruptedException e) {
+                        // Released early.
+                      }
+                      release.countDown();
+                    })
+                .start();
+            throw new IOException("Connection reset");
+          }
+
+          @Override
+          public void close() {}
+        };
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () ->
+                new BatchValidator(validator, schema, 1, 1)
+                    .validate(input, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+    assertEquals("Connection reset", e.getMessage());
+  }
+
+  @Test
+  @Timeout(60)
+  void readerThrowsRuntimeException() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson("{}");
+    Reader input =
+        new Reader() {
+          @Override
+          public int read(char[] buffer, int offset, int length) {
+            throw new IllegalStateException("Closed");
+          }
+
+          @Override
+          public void close() {}
+        };
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () ->
+                new BatchValidator(new Validator(), schema)
+                    .validate(input, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+    assertEquals("Closed", e.getMessage());
+  }
+
+  @Test
+  void daemonRejectsFileOptions() {
+    for (String option : new String[] {"--checkpoint", "--processes"}) {
+      ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+      int status =
+          BatchValidator.run(
+              new String[] {"--daemon", "0", option, "1"},
+              new ByteArrayInputStream(new byte[0]),
+              new PrintStream(new ByteArrayOutputStream()),
+              new PrintStream(errorOutput));
+      assertEquals(2, status);
+      assertTrue(errorOutput.toString().contains("Usage: "));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ContentCheckerTest {
+  private static final ObjectReader OBJECT_READER = new ObjectMapper().readerFor(Object.class);
+
+  @Test
+  void sameAsDecoder() {
+    String[] strings = {
+      "", "e30", "e30=", "e30==", "e3", "e", "e30=x", "e+0", "W1", "W10", "IntcIlwiIg", "\u00e930"
+    };
+    for (String string : strings) {
+      List<String> expected = new ArrayList<>();
+      try {
+        Base64.getUrlDecoder().decode(string);
+      } catch (IllegalArgumentException e) {
+        expected.add(e.getMessage());
+      }
+      List<String> reasons = new ArrayList<>();
+      ContentChecker.check(string, true, false, OBJECT_READER, reasons::add);
+      assertEquals(expected, reasons, string);
+    }
+  }
+
+  @Test
+  void json() {
+    assertEquals(0, reasons(encode("{\"a\": [1, {\"b\": \"c\"}]}"), true).size());
+    assertEquals(1, reasons(encode("{\"a\": [1, {\"b\": \"c\"}]"), true).size());
+    assertEquals(1, reasons(encode("\"\\q\""), true).size());
+    assertEquals(1, reasons(encode(""), true).size());
+    // The JSON is checked as it is when it is not valid base64.
+    assertEquals(1, reasons("[1]", true).size());
+    assertEquals(2, reasons("[1", true).size());
+  }
+
+  private static String encode(String json) {
+    return Base64.getUrlEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> reasons(String string, boolean json) {
+    List<String> reasons = new ArrayList<>();
+    ContentChecker.check(string, true, json, OBJECT_READER, reasons::add);
+    return reasons;
+  }
+}
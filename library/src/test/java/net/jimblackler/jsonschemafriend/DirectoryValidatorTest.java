@@ -0,0 +1,71 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+public class DirectoryValidatorTest {
+  private static void write(Path path, String content) throws Exception {
+    Files.createDirectories(path.getParent());
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static DirectoryValidator.Summary validate(
+      Path schemas, Path data, ByteArrayOutputStream errorOutput, File cache) throws Exception {
+    Schema schema = new SchemaStore().loadSchema(schemas.resolve("root.json").toFile());
+    return new DirectoryValidator(new Validator(), schema, 2)
+        .validate(data.toFile(), errorOutput, cache);
+  }
+
+  @Test
+  void cache() throws Exception {
+    Path schemas = Files.createTempDirectory("schemas");
+    Path data = Files.createTempDirectory("data");
+    File cache = File.createTempFile("directory", ".cache");
+    cache.delete();
+    write(
+        schemas.resolve("root.json"),
+        "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+            + "\"properties\": {\"n\": {\"$ref\": \"number.json\"}}}");
+    write(schemas.resolve("number.json"), "{\"maximum\": 10}");
+    for (int n = 0; n != 20; n++) {
+      write(data.resolve("dir" + n % 3).resolve(n + ".json"), "{\"n\": " + n + "}");
+    }
+    write(data.resolve("broken.json"), "{");
+    write(data.resolve("ignored.txt"), "{");
+
+    ByteArrayOutputStream errorOutput = new ByteArrayOutputStream();
+    DirectoryValidator.Summary summary = validate(schemas, data, errorOutput, cache);
+    assertEquals(21, summary.getFiles());
+    assertEquals(11, summary.getValid());
+    assertEquals(9, summary.getInvalid());
+    assertEquals(1, summary.getMalformed());
+    assertEquals(0, summary.getCached());
+    String expected = errorOutput.toString("UTF-8");
+    assertEquals(10, expected.split("\n").length);
+    assertTrue(expected.startsWith("{\"file\":\"broken.json\",\"valid\":false,"));
+
+    // Unchanged files are not validated again, and give the same output.
+    errorOutput = new ByteArrayOutputStream();
+    summary = validate(schemas, data, errorOutput, cache);
+    assertEquals(21, summary.getCached());
+    assertEquals(expected, errorOutput.toString("UTF-8"));
+
+    write(data.resolve("dir0").resolve("0.json"), "{\"n\": 10.5}");
+    summary = validate(schemas, data, new ByteArrayOutputStream(), cache);
+    assertEquals(20, summary.getCached());
+    assertEquals(10, summary.getInvalid());
+
+    // A change to a referenced schema invalidates every result.
+    write(schemas.resolve("number.json"), "{\"maximum\": 100}");
+    summary = validate(schemas, data, new ByteArrayOutputStream(), cache);
+    assertEquals(0, summary.getCached());
+    assertEquals(20, summary.getValid());
+  }
+}
@@ -0,0 +1,225 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class DocumentAdapterTest {
+  private static final String SCHEMA =
+      "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+          + "\"required\": [\"name\"], "
+          + "\"properties\": {\"name\": {\"type\": \"string\"}, "
+          + "\"scores\": {\"items\": {\"type\": \"integer\", \"maximum\": 10}}}}";
+
+  @Test
+  void jsonNode() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    JsonNode document = new ObjectMapper().readTree("{\"name\": 1, \"scores\": [1, 20, null]}");
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    assertEquals(3, errors.size());
+    assertEquals("#/name", errors.get(0).getUri().toString());
+    assertEquals("#/scores/1", errors.get(1).getUri().toString());
+    assertEquals("#/scores/2", errors.get(2).getUri().toString());
+
+    assertEquals("{\"valid\":false}", flag(schema, document));
+    JsonNode valid = new ObjectMapper().readTree("{\"name\": \"a\"}");
+    assertEquals("{\"valid\":true}", flag(schema, valid));
+  }
+
+  @Test
+  void jsonObject() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    JSONObject document = new JSONObject();
+    document.put("scores", new JSONArray().put(3).put(JSONObject.NULL));
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    assertEquals(2, errors.size());
+    assertTrue(errors.get(0) instanceof MissingPropertyError);
+    assertTrue(errors.get(1) instanceof TypeError);
+    assertEquals("#/scores/1", errors.get(1).getUri().toString());
+
+    assertEquals("{\"valid\":false}", flag(schema, document));
+    assertEquals("{\"valid\":true}", flag(schema, new JSONObject().put("name", "a")));
+  }
+
+  @Test
+  void bean() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    Player player = new Player();
+    player.scores = Arrays.asList(3, 11);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, player, new BeanAdapter(), errors::add);
+    assertEquals(2, errors.size());
+    assertEquals("#/scores/1", errors.get(0).getUri().toString());
+    assertTrue(errors.get(1) instanceof TypeError);
+    assertEquals("#/name", errors.get(1).getUri().toString());
+
+    player.name = Level.EXPERT;
+    player.scores = Arrays.asList(3, 10);
+    errors.clear();
+    new Validator().validate(schema, player, new BeanAdapter(), errors::add);
+    assertTrue(errors.isEmpty());
+  }
+
+  @Test
+  void beanSerialization() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    BeanAdapter beanAdapter = new BeanAdapter(objectMapper);
+    assertSameProperties(beanAdapter, objectMapper, new Included());
+    Included included = new Included();
+    included.optional = "a";
+    included.scores = Arrays.asList(1, 2);
+    assertSameProperties(beanAdapter, objectMapper, included);
+    assertSameProperties(beanAdapter, objectMapper, new Custom());
+
+    ObjectMapper nonNull =
+        new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    assertSameProperties(new BeanAdapter(nonNull), nonNull, new Player());
+    assertSameProperties(beanAdapter, objectMapper, new ClassInclusion());
+    NonDefault nonDefault = new NonDefault();
+    assertSameProperties(beanAdapter, objectMapper, nonDefault);
+    nonDefault.count = 2;
+    assertSameProperties(beanAdapter, objectMapper, nonDefault);
+
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"required\": [\"optional\"], "
+                    + "\"properties\": {\"tags\": {\"items\": {\"maximum\": 5}}, "
+                    + "\"formatted\": {\"type\": \"string\"}, "
+                    + "\"inner\": false}}");
+    Included withTag = new Included();
+    withTag.optional = "a";
+    withTag.tags.add(9);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, withTag, beanAdapter, errors::add);
+    assertEquals(1, errors.size());
+    assertEquals("#/tags/1", errors.get(0).getUri().toString());
+
+    // The custom serializer writes a string, and the properties of the unwrapped bean are written
+    // into this one, without the null.
+    errors.clear();
+    new Validator().validate(schema, new Custom(), beanAdapter, errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof MissingPropertyError);
+  }
+
+  @Test
+  void convertedOnce() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"items\": {\"items\": {\"maximum\": 5}, \"minItems\": 2}}");
+    Set<Object> document = new LinkedHashSet<>();
+    Counted counted = new Counted();
+    document.add(counted);
+    document.add(Arrays.asList(1, 2));
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, new BeanAdapter(), errors::add);
+    assertEquals(1, errors.size());
+    assertEquals("#/0/2", errors.get(0).getUri().toString());
+    assertEquals(1, counted.reads);
+  }
+
+  private static void assertSameProperties(
+      BeanAdapter beanAdapter, ObjectMapper objectMapper, Object bean) {
+    Map<?, ?> expected = objectMapper.convertValue(bean, Map.class);
+    List<String> names = new ArrayList<>();
+    beanAdapter.getPropertyNames(bean).forEach(names::add);
+    assertEquals(new ArrayList<>(expected.keySet()), names);
+    assertEquals(expected.size(), beanAdapter.size(bean));
+    for (Object name : expected.keySet()) {
+      assertTrue(beanAdapter.hasProperty(bean, (String) name));
+    }
+  }
+
+  private static String flag(Schema schema, Object document) throws IOException {
+    StringWriter writer = new StringWriter();
+    new Validator().validateWithOutput(schema, document, OutputFormat.FLAG, writer);
+    return writer.toString();
+  }
+
+  public enum Level {
+    EXPERT
+  }
+
+  public static class Player {
+    public List<Integer> scores;
+    private Level name;
+
+    public Level getName() {
+      return name;
+    }
+  }
+
+  public static class Included {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String optional;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<Integer> scores = new ArrayList<>();
+
+    public int count = 1;
+
+    public Set<Integer> tags = new LinkedHashSet<>(Collections.singletonList(1));
+  }
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public static class ClassInclusion {
+    public String absent;
+    public String present = "a";
+  }
+
+  public static class NonDefault {
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public int count;
+
+    public String name = "a";
+  }
+
+  /** Serialized as a list, which is counted each time it is written. */
+  public static class Counted {
+    public int reads;
+
+    @JsonValue
+    public List<Integer> getValue() {
+      reads++;
+      return Arrays.asList(1, 2, 9);
+    }
+  }
+
+  public static class Custom {
+    @JsonSerialize(using = ToStringSerializer.class)
+    public int formatted = 2;
+
+    @JsonUnwrapped public Included inner = new Included();
+
+    @JsonAnyGetter
+    public Map<String, Object> getOther() {
+      return Collections.singletonMap("other", true);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ErrorLimitsTest {
+  private static final String ITEMS_SCHEMA =
+      "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+          + "\"items\": {\"type\": \"object\", \"required\": [\"a\", \"b\"]}}";
+  private static final String NESTED_SCHEMA =
+      "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+          + "\"anyOf\": [{\"anyOf\": [{\"type\": \"string\"}, {\"type\": \"boolean\"}]}, "
+          + "{\"type\": \"number\"}]}";
+
+  @Test
+  void maxErrors() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(ITEMS_SCHEMA);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator(new ErrorLimits(3)).validate(schema, list(10), errors::add);
+    assertEquals(3, errors.size());
+  }
+
+  @Test
+  void deduplicate() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(ITEMS_SCHEMA);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator(new ErrorLimits(Integer.MAX_VALUE, Integer.MAX_VALUE, true))
+        .validate(schema, list(10), errors::add);
+    assertEquals(2, errors.size());
+    for (ValidationError error : errors) {
+      assertTrue(error instanceof MissingPropertyError);
+      assertEquals("#/0", error.getUri().toString());
+      assertEquals(10, error.getOccurrences());
+    }
+  }
+
+  @Test
+  void maxBranchDepth() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(NESTED_SCHEMA);
+
+    AnyOfError unlimited = validateAnyOf(schema, Integer.MAX_VALUE);
+    assertEquals(2, unlimited.getAllErrors().size());
+    AnyOfError nested = (AnyOfError) unlimited.getAllErrors().get(0).get(0);
+    assertEquals(2, nested.getAllErrors().size());
+
+    AnyOfError depth1 = validateAnyOf(schema, 1);
+    assertEquals(2, depth1.getAllErrors().size());
+    assertTrue(((AnyOfError) depth1.getAllErrors().get(0).get(0)).getAllErrors().isEmpty());
+
+    AnyOfError depth0 = validateAnyOf(schema, 0);
+    assertTrue(depth0.getAllErrors().isEmpty());
+  }
+
+  private static AnyOfError validateAnyOf(Schema schema, int maxBranchDepth) {
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator(new ErrorLimits(Integer.MAX_VALUE, maxBranchDepth, false))
+        .validate(schema, new ArrayList<>(), errors::add);
+    assertEquals(1, errors.size());
+    return (AnyOfError) errors.get(0);
+  }
+
+  private static List<Object> list(int size) {
+    List<Object> list = new ArrayList<>();
+    for (int idx = 0; idx < size; idx++) {
+      list.add(new HashMap<>());
+    }
+    return list;
+  }
+}
@@ -0,0 +1,78 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class ErrorMessageTest {
+  @Test
+  void listValidationException() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"required\": [\"a\"], \"properties\": {\"b\": {\"type\": \"string\"}}}");
+    Map<String, Object> document = new HashMap<>();
+    document.put("b", 1);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    assertEquals(2, errors.size());
+
+    // The message that was built in the constructor.
+    String expected =
+        "Validation errors: "
+            + errors.stream()
+                .map(Object::toString)
+                .collect(Collectors.joining(System.lineSeparator()));
+    ListValidationException exception = new ListValidationException(errors);
+    assertEquals(expected, exception.getMessage());
+    assertEquals(expected, exception.getMessage());
+    assertTrue(exception.toString().endsWith(expected));
+  }
+
+  @Test
+  void standardGenerationException() {
+    Map<String, Object> output = new LinkedHashMap<>();
+    output.put("valid", false);
+    output.put("error", "Unexpected type");
+    StandardGenerationException exception = new StandardGenerationException(output);
+    assertEquals("{valid=false, error=Unexpected type}", exception.getMessage());
+    assertEquals(output.toString(), exception.getMessage());
+  }
+
+  @Test
+  void previewTruncatesLongDocuments() throws Exception {
+    List<Object> document = new ArrayList<>();
+    for (int idx = 0; idx != 100000; idx++) {
+      document.add(Collections.singletonMap("key", idx));
+    }
+    String full = new ObjectMapper().writeValueAsString(document);
+    String preview = ValidationError.preview(document, 60);
+    assertEquals(60, preview.length());
+    assertEquals(ValidationError.truncate(full, 60), preview);
+
+    // Short documents are not truncated.
+    assertEquals("[1,2]", ValidationError.preview(new int[] {1, 2}, 60));
+  }
+
+  @Test
+  void previewWriterStopsWhenFull() throws Exception {
+    PreviewWriter writer = new PreviewWriter(5);
+    writer.write("abc");
+    assertEquals("abc", writer.toString());
+    assertThrows(IOException.class, () -> writer.write("defgh"));
+    assertTrue(writer.isFull());
+    assertEquals("abcde", writer.toString());
+  }
+}
@@ -0,0 +1,122 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JsonTapeTest {
+  @Test
+  void sameAsObjectMapper() throws Exception {
+    String[] documents = {
+      "{\"a\": [1, -2.5e3, 12345678901, 123456789012345678901234, true, false, null], "
+          + "\"b\": {\"c\": \"plain\", \"d\": \"esc\\\"aped\\n\\u00e9\\ud83d\\ude00\", \"e\": {}}, "
+          + "\"f\": [], \"g\": \"\u00fcnicode\"}",
+      "[[[[]]], {}, \"x\"]",
+      "\"scalar\"",
+      "-0",
+      "{\"1\": 1, \"2\": 2, \"3\": 3, \"4\": 4, \"5\": 5, \"6\": 6, \"7\": 7, \"8\": 8, \"9\": 9}",
+      "{\"a\": 1, \"b\": 2, \"a\": {\"c\": 3}}",
+      "{\"1\": 1, \"2\": 2, \"3\": 3, \"4\": 4, \"5\": 5, \"6\": 6, \"7\": 7, \"8\": 8, \"1\": 9}"
+    };
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (String document : documents) {
+      Object expected = objectMapper.readValue(document, Object.class);
+      Object actual = JsonTape.parse(document.getBytes(StandardCharsets.UTF_8));
+      assertEquals(expected, actual);
+      assertEquals(
+          objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(actual));
+    }
+  }
+
+  @Test
+  void malformedDocuments() throws Exception {
+    String[] documents = {"\"abc", "\"a\\qb\"", "[\"a\\qb\"]", "{\"a\": 1", ""};
+    for (String document : documents) {
+      assertThrows(
+          IOException.class, () -> JsonTape.parse(document.getBytes(StandardCharsets.UTF_8)));
+    }
+  }
+
+  @Test
+  void trailingTokens() throws Exception {
+    byte[] document = "{\"a\": 1} [2]".getBytes(StandardCharsets.UTF_8);
+    ObjectMapper objectMapper = new ObjectMapper();
+    assertEquals(
+        objectMapper.readValue(document, Object.class),
+        JsonTape.parse(document, objectMapper.readerFor(Object.class)));
+    ObjectReader strict =
+        objectMapper.readerFor(Object.class).with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    assertThrows(IOException.class, () -> JsonTape.parse(document, strict));
+    assertThrows(
+        IOException.class,
+        () -> JsonTape.parse("\"a\" \"b\"".getBytes(StandardCharsets.UTF_8), strict));
+  }
+
+  @Test
+  void valuesCanBeReplaced() throws Exception {
+    Map<String, Object> document =
+        (Map<String, Object>)
+            JsonTape.parse("{\"a\": [1, 2], \"b\": \"x\"}".getBytes(StandardCharsets.UTF_8));
+    ((List<Object>) document.get("a")).set(1, 3);
+    document.put("b", "y");
+    assertEquals("{\"a\":[1,3],\"b\":\"y\"}", new ObjectMapper().writeValueAsString(document));
+  }
+
+  @Test
+  void validate() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"items\": {\"type\": \"string\", \"maxLength\": 2}}");
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator()
+        .validate(schema, "[\"ab\", \"abc\", 1]".getBytes(StandardCharsets.UTF_8), errors::add);
+    assertEquals(2, errors.size());
+    assertTrue(errors.get(0) instanceof MaxLengthError);
+    assertEquals("#/1", errors.get(0).getUri().toString());
+    assertTrue(errors.get(1) instanceof TypeError);
+  }
+
+  @Test
+  void numberFeatures() throws Exception {
+    ObjectMapper objectMapper =
+        new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .enable(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS);
+    String document = "[0.30000000000000000001, 1.5e2, 7, 12345678901]";
+    Object expected = objectMapper.readValue(document, Object.class);
+    Object actual =
+        JsonTape.parse(
+            document.getBytes(StandardCharsets.UTF_8), objectMapper.readerFor(Object.class));
+    assertEquals(expected, actual);
+    assertTrue(((List<Object>) actual).get(0) instanceof BigDecimal);
+    assertTrue(((List<Object>) actual).get(2) instanceof BigInteger);
+
+    // As a double the number is a multiple of 0.1, but as a BigDecimal it is not.
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                    + "\"items\": {\"multipleOf\": 0.1}}");
+    Validator validator = new Validator(objectMapper);
+    String json = "[0.30000000000000000001]";
+    assertThrows(ValidationException.class, () -> validator.validateJson(schema, json));
+    List<ValidationError> errors = new ArrayList<>();
+    validator.validate(schema, json.getBytes(StandardCharsets.UTF_8), errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof MultipleError);
+  }
+}
@@ -0,0 +1,73 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class MetaSchemaLayerTest {
+  @Test
+  void sharedBetweenStores() throws Exception {
+    for (URI draft :
+        new URI[] {
+          MetaSchemaUris.DRAFT_3,
+          MetaSchemaUris.DRAFT_7,
+          MetaSchemaUris.DRAFT_2019_09,
+          MetaSchemaUris.DRAFT_2020_12
+        }) {
+      assertSame(new SchemaStore().loadSchema(draft), new SchemaStore().loadSchema(draft));
+    }
+  }
+
+  @Test
+  void references() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"$ref\": "
+                    + "\"http://json-schema.org/draft-07/schema#"
+                    + "/definitions/nonNegativeInteger\"}");
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, -1, errors::add);
+    assertEquals(1, errors.size());
+
+    // Schemas are still validated against their meta-schema.
+    assertThrows(
+        GenerationException.class,
+        () ->
+            new SchemaStore()
+                .loadSchemaJson(
+                    "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                        + "\"minimum\": \"one\"}"));
+  }
+
+  @Test
+  void unbundledDocumentsAreFetched() throws Exception {
+    // Documents published alongside a draft, but not bundled, are fetched with the store's loader.
+    List<URI> fetched = new ArrayList<>();
+    SchemaStore schemaStore =
+        new SchemaStore(
+            (uri, cacheSchema) -> {
+              fetched.add(uri);
+              return "{\"$schema\": \"https://json-schema.org/draft/2020-12/schema\", "
+                  + "\"$defs\": {\"basic\": {\"type\": \"object\"}}}";
+            });
+    Schema schema =
+        schemaStore.loadSchema(
+            URI.create("https://json-schema.org/draft/2020-12/output/schema#/$defs/basic"));
+    URI document = URI.create("https://json-schema.org/draft/2020-12/output/schema");
+    assertEquals(Collections.singletonList(document), fetched);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, 1, errors::add);
+    assertEquals(1, errors.size());
+
+    // A bundled document is not fetched.
+    schemaStore.loadSchema(URI.create("https://json-schema.org/draft/2020-12/meta/core"));
+    assertEquals(1, fetched.size());
+  }
+}
@@ -0,0 +1,208 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class SchemaStoreConcurrencyTest {
+  /** Serves schemas that all refer to a common one, counting the loads of each. */
+  private static class CountingLoader implements Loader {
+    final Map<URI, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    @Override
+    public String load(URI uri, boolean cacheSchema) throws IOException {
+      loads.computeIfAbsent(uri, k -> new AtomicInteger()).incrementAndGet();
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      String name = uri.getPath().substring(1);
+      if (name.equals("common.json")) {
+        return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"maximum\": 10}";
+      }
+      return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+          + "\"items\": {\"$ref\": \"common.json\"}}";
+    }
+  }
+
+  private static <T> List<T> runAll(int count, Callable<T> task)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(count);
+    try {
+      CountDownLatch ready = new CountDownLatch(count);
+      List<Future<T>> futures = new ArrayList<>();
+      for (int n = 0; n != count; n++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  ready.countDown();
+                  ready.await();
+                  return task.call();
+                }));
+      }
+      List<T> results = new ArrayList<>();
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void singleFlight() throws Exception {
+    CountingLoader loader = new CountingLoader();
+    SchemaStore schemaStore = new SchemaStore(loader);
+    URI uri = URI.create("http://example.com/root.json");
+    List<Schema> schemas = runAll(8, () -> schemaStore.loadSchema(uri));
+    for (Schema schema : schemas) {
+      assertSame(schemas.get(0), schema);
+    }
+    assertEquals(1, loader.loads.get(uri).get());
+    assertEquals(1, loader.loads.get(URI.create("http://example.com/common.json")).get());
+  }
+
+  @Test
+  void differentUris() throws Exception {
+    CountingLoader loader = new CountingLoader();
+    SchemaStore schemaStore = new SchemaStore(loader);
+    AtomicInteger next = new AtomicInteger();
+    List<Schema> schemas =
+        runAll(
+            8,
+            () ->
+                schemaStore.loadSchema(
+                    URI.create("http://example.com/" + next.getAndIncrement() + ".json")));
+    Schema common = schemas.get(0).getItems().getRef();
+    for (Schema schema : schemas) {
+      assertSame(common, schema.getItems().getRef());
+      new Validator().validate(schema, new ArrayList<>(Arrays.asList(1, 2)));
+    }
+    assertEquals(1, loader.loads.get(URI.create("http://example.com/common.json")).get());
+  }
+
+  @Test
+  @Timeout(60)
+  void fetchesDoNotBlockOtherLoads() throws Exception {
+    CountDownLatch fetching = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // The first schema refers to one that is slow to fetch; the other has no references.
+    Loader loader =
+        (uri, cacheSchema) -> {
+          switch (uri.getPath()) {
+            case "/first.json":
+              return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                  + "\"items\": {\"$ref\": \"slow.json\"}}";
+            case "/slow.json":
+              fetching.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                throw new IOException(e);
+              }
+              return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"maximum\": 10}";
+            default:
+              return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"maximum\": 5}";
+          }
+        };
+    SchemaStore schemaStore = new SchemaStore(loader);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      URI firstUri = URI.create("http://example.com/first.json");
+      Future<Schema> first = executor.submit(() -> schemaStore.loadSchema(firstUri));
+      fetching.await();
+      Schema other = schemaStore.loadSchema(URI.create("http://example.com/other.json"));
+      assertThrows(ValidationException.class, () -> new Validator().validate(other, 6));
+      release.countDown();
+      Schema schema = first.get();
+      assertThrows(
+          ValidationException.class,
+          () -> new Validator().validate(schema, new ArrayList<>(Arrays.asList(1, 11))));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void referencesFetchedInParallel() throws Exception {
+    // Each referenced document waits until the other is being fetched.
+    CountDownLatch fetching = new CountDownLatch(2);
+    Loader loader =
+        (uri, cacheSchema) -> {
+          String name = uri.getPath().substring(1);
+          if (name.equals("root.json")) {
+            return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"properties\": {\"a\": {\"$ref\": \"a.json\"}, \"b\": {\"$ref\": \"b.json\"}}}";
+          }
+          fetching.countDown();
+          try {
+            if (!fetching.await(10, TimeUnit.SECONDS)) {
+              throw new IOException(name + " was fetched alone");
+            }
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+          return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"maximum\": 1}";
+        };
+    Schema schema = new SchemaStore(loader).loadSchema(URI.create("http://example.com/root.json"));
+    Map<String, Object> document = new HashMap<>();
+    document.put("a", 2);
+    document.put("b", 2);
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    assertEquals(2, errors.size());
+  }
+
+  @Test
+  void sharedSchema() throws Exception {
+    Schema schema =
+        new SchemaStore()
+            .loadSchemaJson(
+                "{\"$schema\": \"https://json-schema.org/draft/2020-12/schema\", "
+                    + "\"properties\": {\"a\": {\"type\": \"integer\"}}, "
+                    + "\"required\": [\"a\"], "
+                    + "\"allOf\": [{\"properties\": {\"b\": true}}], "
+                    + "\"unevaluatedProperties\": false}");
+    assertThrows(UnsupportedOperationException.class, () -> schema.getProperties().clear());
+    assertThrows(UnsupportedOperationException.class, () -> schema.getSubSchemas().clear());
+    List<Integer> errorCounts =
+        runAll(
+            8,
+            () -> {
+              int errors = 0;
+              for (int n = 0; n != 200; n++) {
+                Map<String, Object> document = new HashMap<>();
+                document.put("a", n);
+                document.put(n % 2 == 0 ? "b" : "c", n);
+                List<ValidationError> list = new ArrayList<>();
+                new Validator().validate(schema, document, list::add);
+                errors += list.size();
+              }
+              return errors;
+            });
+    for (int errors : errorCounts) {
+      assertEquals(100, errors);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class SchemaStoreForkTest {
+  private static final URI COMMON = URI.create("http://example.com/common.json");
+  private static final URI TENANT = URI.create("http://example.com/tenant.json");
+
+  private static int errors(Schema schema, Object document) {
+    List<ValidationError> errors = new ArrayList<>();
+    new Validator().validate(schema, document, errors::add);
+    return errors.size();
+  }
+
+  @Test
+  void fork() throws Exception {
+    Map<URI, AtomicInteger> loads = new ConcurrentHashMap<>();
+    SchemaStore core =
+        new SchemaStore(
+            (uri, cacheSchema) -> {
+              loads.computeIfAbsent(uri, k -> new AtomicInteger()).incrementAndGet();
+              return "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                  + "\"definitions\": {\"small\": {\"maximum\": 10}}}";
+            });
+    Schema common = core.loadSchema(COMMON);
+
+    SchemaStore tenant1 = core.fork();
+    Schema schema1 =
+        tenant1.loadSchemaJson(
+            "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"$id\": \""
+                + TENANT
+                + "\", \"items\": {\"$ref\": \"common.json#/definitions/small\"}}");
+    assertEquals(1, errors(schema1, new ArrayList<>(Arrays.asList(1, 11))));
+    // The core document is shared, not fetched again.
+    assertSame(common, tenant1.loadSchema(COMMON));
+    assertEquals(1, loads.get(COMMON).get());
+    Schema small = core.loadSchema(URI.create(COMMON + "#/definitions/small"));
+    assertSame(small, schema1.getItems());
+
+    // Schemas added to a fork are seen by neither its parent nor other forks.
+    SchemaStore tenant2 = core.fork();
+    assertNotSame(schema1, tenant2.loadSchema(TENANT));
+    assertEquals(1, loads.get(TENANT).get());
+    core.loadSchema(TENANT);
+    assertEquals(2, loads.get(TENANT).get());
+  }
+}
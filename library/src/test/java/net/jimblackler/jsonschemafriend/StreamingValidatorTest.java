@@ -0,0 +1,115 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class StreamingValidatorTest {
+  private static final String SCHEMA =
+      "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+          + "\"type\": \"object\", "
+          + "\"required\": [\"id\", \"items\"], "
+          + "\"properties\": {"
+          + "\"id\": {\"type\": \"integer\", \"minimum\": 1}, "
+          + "\"items\": {\"type\": \"array\", \"maxItems\": 3, "
+          + "\"items\": {\"$ref\": \"#/definitions/item\"}}, "
+          + "\"payload\": true}, "
+          + "\"additionalProperties\": false, "
+          + "\"definitions\": {\"item\": {"
+          + "\"required\": [\"name\"], "
+          + "\"properties\": {\"name\": {\"type\": \"string\"}, "
+          + "\"tags\": {\"type\": \"array\", \"uniqueItems\": true}}}}}";
+
+  @Test
+  void sameErrorsAsValidator() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    String[] documents = {
+      "{\"id\": 1, \"items\": [{\"name\": \"a\", \"tags\": [1, 2]}], \"payload\": {\"x\": [1]}}",
+      "{\"id\": 0, \"items\": [{\"tags\": [1, 1]}, {\"name\": 2}, {}, {}], \"other\": 1}",
+      "{\"items\": \"none\"}",
+      "[1, 2, 3]",
+      "\"string\""
+    };
+    Validator validator = new Validator();
+    StreamingValidator streamingValidator = new StreamingValidator(validator);
+    for (String document : documents) {
+      List<ValidationError> expected = new ArrayList<>();
+      Object object = new ObjectMapper().readValue(document, Object.class);
+      validator.validate(schema, object, expected::add);
+      List<ValidationError> errors = new ArrayList<>();
+      streamingValidator.validate(schema, toStream(document), errors::add);
+      assertEquals(errorUris(expected), errorUris(errors), document);
+      assertEquals(expected.isEmpty(), streamingValidator.isValid(schema, toStream(document)));
+    }
+  }
+
+  @Test
+  void containersAreNotRetained() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    List<ValidationError> errors = new ArrayList<>();
+    new StreamingValidator().validate(schema, toStream("{\"id\": 1}"), errors::add);
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0) instanceof MissingPropertyError);
+    assertNull(errors.get(0).getObject());
+  }
+
+  @Test
+  void unconstrainedValuesAreSkipped() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    String document =
+        "{\"id\": 1, \"items\": [], \"payload\": {\"a\": [\"b\", {\"c\": \"d\"}], \"e\": 2}}";
+    List<String> decoded = new ArrayList<>();
+    JsonParser parser =
+        new JsonParserDelegate(new JsonFactory().createParser(document)) {
+          @Override
+          public String getText() throws IOException {
+            decoded.add(super.getText());
+            return super.getText();
+          }
+        };
+    List<ValidationError> errors = new ArrayList<>();
+    new StreamingValidator().validate(schema, parser, errors::add);
+    assertTrue(errors.isEmpty());
+    assertTrue(decoded.isEmpty());
+  }
+
+  @Test
+  void malformed() throws Exception {
+    Schema schema = new SchemaStore().loadSchemaJson(SCHEMA);
+    boolean failed = false;
+    try {
+      new StreamingValidator()
+          .validate(schema, toStream("{\"id\": 1, \"payload\": [1, }"), error -> {});
+    } catch (IOException e) {
+      failed = true;
+    }
+    assertTrue(failed);
+    assertFalse(new StreamingValidator().isValid(schema, toStream("{\"id\": 1, \"items\": 1}")));
+  }
+
+  private static List<String> errorUris(List<ValidationError> errors) {
+    List<String> uris = new ArrayList<>();
+    for (ValidationError error : errors) {
+      uris.add(error.getClass().getSimpleName() + " " + error.getUri());
+    }
+    uris.sort(null);
+    return uris;
+  }
+
+  private static InputStream toStream(String document) {
+    return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,21 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.Test;
+
+public class ThreadsTest {
+  @Test
+  void blockingTaskExecutor() throws Exception {
+    String version = System.getProperty("java.specification.version");
+    boolean expected = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+    assertEquals(expected, Threads.hasVirtualThreads());
+    ExecutorService executor = Threads.newBlockingTaskExecutor();
+    try {
+      assertEquals(42, (int) executor.submit(() -> 42).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.jupiter.api.Test;
+
+public class ValidateAllTest {
+  private static Schema schema() throws GenerationException {
+    return new SchemaStore()
+        .loadSchemaJson(
+            "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"properties\": {\"n\": {\"maximum\": 100}}}");
+  }
+
+  private static List<Object> documents(int count) {
+    List<Object> documents = new ArrayList<>();
+    for (int n = 0; n != count; n++) {
+      // Validation writes the values it reads back into the document.
+      Map<String, Object> document = new HashMap<>();
+      document.put("n", n % 200);
+      documents.add(document);
+    }
+    return documents;
+  }
+
+  private static void check(int n, ValidationResult result) {
+    if (n % 200 > 100) {
+      assertEquals(1, result.getErrors().size());
+      assertTrue(result.getErrors().get(0) instanceof MaximumError);
+    } else {
+      assertTrue(result.isValid());
+    }
+    assertEquals(Collections.singletonMap("n", n % 200), result.getDocument());
+  }
+
+  @Test
+  void validateAll() throws Exception {
+    List<ValidationResult> results = new ArrayList<>();
+    new Validator()
+        .validateAll(
+            schema(),
+            documents(1000),
+            (index, result) -> {
+              assertEquals(results.size(), index);
+              results.add(result);
+            });
+    assertEquals(1000, results.size());
+    for (int n = 0; n != 1000; n++) {
+      check(n, results.get(n));
+    }
+  }
+
+  @Test
+  void parallel() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      // A sized spliterator, and one of unknown size that splits off sized runs.
+      List<Object> documents = documents(5000);
+      for (Iterable<Object> iterable : new Iterable[] {documents, documents::iterator}) {
+        AtomicReferenceArray<ValidationResult> results = new AtomicReferenceArray<>(5000);
+        new Validator()
+            .validateAllParallel(
+                schema(),
+                iterable.spliterator(),
+                (index, result) -> assertNull(results.getAndSet((int) index, result)),
+                pool);
+        for (int n = 0; n != 5000; n++) {
+          check(n, results.get(n));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+
+public class ValidationDaemonTest {
+  private static String post(InetSocketAddress address, File schema, String body, int status)
+      throws Exception {
+    URL url =
+        new URL(
+            "http://127.0.0.1:"
+                + address.getPort()
+                + "/validate?schema="
+                + URLEncoder.encode(schema.getPath(), "UTF-8"));
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body.getBytes(StandardCharsets.UTF_8));
+    }
+    assertEquals(status, connection.getResponseCode());
+    try (InputStream in =
+        status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+      return in == null ? "" : StreamUtils.streamToString(in);
+    }
+  }
+
+  @Test
+  void validate() throws Exception {
+    File schema = File.createTempFile("daemon", ".json");
+    File number = new File(schema.getParentFile(), schema.getName() + ".number.json");
+    schema.deleteOnExit();
+    number.deleteOnExit();
+    Files.write(
+        schema.toPath(),
+        ("{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"items\": {\"$ref\": \""
+                + number.getName()
+                + "\"}}")
+            .getBytes(StandardCharsets.UTF_8));
+    Files.write(number.toPath(), "{\"maximum\": 10}".getBytes(StandardCharsets.UTF_8));
+    // Another schema that refers to the same file.
+    File other = new File(schema.getParentFile(), schema.getName() + ".other.json");
+    other.deleteOnExit();
+    Files.write(
+        other.toPath(),
+        ("{\"$schema\": \"http://json-schema.org/draft-07/schema#\", "
+                + "\"properties\": {\"n\": {\"$ref\": \""
+                + number.getName()
+                + "\"}}}")
+            .getBytes(StandardCharsets.UTF_8));
+
+    ValidationDaemon daemon = new ValidationDaemon(new Validator(), 2);
+    InetSocketAddress address = daemon.start(0);
+    try {
+      assertEquals("", post(address, schema, "[1, 2]\n[3]\n", 200));
+      String errors = post(address, schema, "[1]\n[11]\n[\n", 422);
+      String[] lines = errors.split("\n");
+      assertEquals(2, lines.length);
+      assertTrue(lines[0].startsWith("{\"line\":2,\"valid\":false,\"errors\":["));
+      assertTrue(lines[1].startsWith("{\"line\":3,\"valid\":false,\"error\":"));
+
+      // A change to a referenced schema is seen by the next request.
+      Files.write(number.toPath(), "{\"maximum\": 100}".getBytes(StandardCharsets.UTF_8));
+      number.setLastModified(number.lastModified() + 2000);
+      // The other schema is loaded for the first time, after the file was read for the first.
+      post(address, other, "{\"n\": 11}\n", 200);
+      post(address, schema, "[11]\n", 200);
+
+      post(address, new File(schema.getPath() + ".missing"), "[1]\n", 400);
+
+      // HttpURLConnection does not send an Origin header, so the request is written directly.
+      try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+        String request =
+            "POST /validate?schema="
+                + URLEncoder.encode(schema.getPath(), "UTF-8")
+                + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Origin: http://example.com\r\n"
+                + "Content-Length: 4\r\n"
+                + "Connection: close\r\n\r\n"
+                + "[1]\n";
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+        String response = StreamUtils.streamToString(socket.getInputStream());
+        assertTrue(response.startsWith("HTTP/1.1 403 "));
+      }
+    } finally {
+      daemon.stop();
+    }
+  }
+}
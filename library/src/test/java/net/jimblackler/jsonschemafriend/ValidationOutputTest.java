@@ -2,9 +2,15 @@ package net.jimblackler.jsonschemafriend;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -32,10 +38,64 @@ public class ValidationOutputTest {
     }
   }
 
+  @Test
+  void formats() throws Exception {
+    SchemaStore schemaStore = new SchemaStore();
+    Schema schema =
+        schemaStore.loadSchemaJson(
+            "{\"$schema\": \"https://json-schema.org/draft/2020-12/schema\", "
+                + "\"properties\": {\"a\": {\"anyOf\": [{\"type\": \"string\"}, "
+                + "{\"oneOf\": [{\"type\": \"number\"}, {\"type\": \"boolean\"}]}]}}}");
+    Validator validator = new Validator();
+    // The validator may write to the document, so mutable maps are used.
+    Map<String, Object> valid = new HashMap<>();
+    valid.put("a", "x");
+    Map<String, Object> invalid = new HashMap<>();
+    invalid.put("a", new ArrayList<>());
+
+    for (OutputFormat outputFormat : OutputFormat.values()) {
+      String format = outputFormat.name().toLowerCase();
+      Map<String, Object> output = writeOutput(validator, schema, valid, outputFormat);
+      checkOutput(schemaStore, output, format);
+      assertEquals(Boolean.TRUE, output.get("valid"));
+
+      output = writeOutput(validator, schema, invalid, outputFormat);
+      checkOutput(schemaStore, output, format);
+      assertEquals(Boolean.FALSE, output.get("valid"));
+      if (outputFormat == OutputFormat.FLAG) {
+        assertEquals(1, output.size());
+        continue;
+      }
+      List<Map<String, Object>> errors = (List<Map<String, Object>>) output.get("errors");
+      assertEquals(1, errors.size());
+      Map<String, Object> error = errors.get(0);
+      assertEquals("#/a", error.get("instanceLocation"));
+      if (outputFormat == OutputFormat.BASIC) {
+        assertTrue(error.containsKey("error"));
+      } else {
+        List<Map<String, Object>> branchErrors = (List<Map<String, Object>>) error.get("errors");
+        assertEquals(2, branchErrors.size());
+      }
+    }
+  }
+
+  private static Map<String, Object> writeOutput(
+      Validator validator, Schema schema, Object document, OutputFormat outputFormat)
+      throws IOException {
+    StringWriter writer = new StringWriter();
+    validator.validateWithOutput(schema, document, outputFormat, writer);
+    return new ObjectMapper().readValue(writer.toString(), Map.class);
+  }
+
   private void checkOutput(SchemaStore schemaStore, Object output)
       throws GenerationException, ValidationException {
+    checkOutput(schemaStore, output, "basic");
+  }
+
+  private void checkOutput(SchemaStore schemaStore, Object output, String format)
+      throws GenerationException, ValidationException {
     URI outputSchema =
-        URI.create("https://json-schema.org/draft/2020-12/output/schema#/$defs/basic");
+        URI.create("https://json-schema.org/draft/2020-12/output/schema#/$defs/" + format);
     Schema outputValidator = schemaStore.loadSchema(outputSchema);
     new Validator().validate(outputValidator, output);
   }
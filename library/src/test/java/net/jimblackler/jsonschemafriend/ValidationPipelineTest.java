@@ -0,0 +1,113 @@
+package net.jimblackler.jsonschemafriend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class ValidationPipelineTest {
+  private static Schema schema() throws GenerationException {
+    return new SchemaStore()
+        .loadSchemaJson(
+            "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"maximum\": 100}");
+  }
+
+  @Test
+  void validateAsync() throws Exception {
+    ValidationResult result = new Validator().validateAsync(schema(), 101).get();
+    assertFalse(result.isValid());
+    assertTrue(result.getErrors().get(0) instanceof MaximumError);
+    assertTrue(new Validator().validateAsync(schema(), 100).get().isValid());
+  }
+
+  @Test
+  void ordered() throws Exception {
+    Schema schema = schema();
+    List<Object> documents = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try (ValidationPipeline pipeline =
+        new ValidationPipeline(
+            new Validator(),
+            schema,
+            executor,
+            8,
+            true,
+            result -> documents.add(result.isValid() ? result.getDocument() : null))) {
+      for (int n = 0; n != 1000; n++) {
+        pipeline.submit(n % 200);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1000, documents.size());
+    for (int n = 0; n != 1000; n++) {
+      assertEquals(n % 200 > 100 ? null : n % 200, documents.get(n));
+    }
+  }
+
+  @Test
+  void backpressure() throws Exception {
+    // An executor that runs nothing until asked, so the documents stay in progress.
+    Deque<Runnable> tasks = new ArrayDeque<>();
+    List<Object> documents = Collections.synchronizedList(new ArrayList<>());
+    ValidationPipeline pipeline =
+        new ValidationPipeline(
+            new Validator(), schema(), tasks::add, 2, false, r -> documents.add(r.getDocument()));
+    assertTrue(pipeline.trySubmit(1));
+    assertTrue(pipeline.trySubmit(2));
+    assertFalse(pipeline.trySubmit(3));
+    tasks.removeLast().run();
+    assertEquals(Collections.singletonList(2), documents);
+    assertTrue(pipeline.trySubmit(3));
+    while (!tasks.isEmpty()) {
+      tasks.remove().run();
+    }
+    pipeline.close();
+    assertEquals(3, documents.size());
+  }
+
+  @Test
+  @Timeout(60)
+  void consumerSubmits() throws Exception {
+    List<Object> documents = Collections.synchronizedList(new ArrayList<>());
+    AtomicReference<ValidationPipeline> pipeline = new AtomicReference<>();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      // Each result submits two more documents, more than there is room for, from the consumer.
+      pipeline.set(
+          new ValidationPipeline(
+              new Validator(),
+              schema(),
+              executor,
+              2,
+              false,
+              result -> {
+                int document = (Integer) result.getDocument();
+                documents.add(document);
+                if (document < 100) {
+                  try {
+                    pipeline.get().submit(document * 2 + 1);
+                    pipeline.get().submit(document * 2 + 2);
+                  } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                  }
+                }
+              }));
+      pipeline.get().submit(0);
+      pipeline.get().close();
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(201, documents.size());
+  }
+}
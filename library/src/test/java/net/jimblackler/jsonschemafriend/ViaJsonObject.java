@@ -37,5 +37,14 @@ public class ViaJsonObject {
       validator.validate(schema, myObject.toMap(), errors::add);
       assertTrue(errors.isEmpty());
     }
+
+    {
+      // JSONObjects can also be validated in place, without toMap().
+      JSONObject myObject = new JSONObject();
+      myObject.put("myValue", "x");
+      List<ValidationError> errors = new ArrayList<>();
+      validator.validate(schema, myObject, errors::add);
+      assertFalse(errors.isEmpty());
+    }
   }
 }